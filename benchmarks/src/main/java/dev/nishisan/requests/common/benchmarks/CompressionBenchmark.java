@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import dev.nishisan.requests.common.compression.GzipCompressionCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the pooled gzip codec with {@link GZIPOutputStream} on a list envelope of about
+ * 20 KB. Run with {@code -prof gc} to see the allocation saved by pooling the deflaters.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CompressionBenchmark {
+
+    private final GzipCompressionCodec codec = new GzipCompressionCodec();
+    private final CountingOutputStream sink = new CountingOutputStream();
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder("{\"responseId\":\"0190a5b2-7c1e-7d3a-9f00-1a2b3c4d5e6f\",\"payload\":[");
+        for (int i = 0; i < 200; i++) {
+            builder.append(i == 0 ? "" : ",").append("{\"id\":").append(i)
+                    .append(",\"name\":\"product-").append(i).append("\",\"price\":").append(i * 7 % 1000).append('}');
+        }
+        json = builder.append("],\"size\":200}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long pooledGzip() throws IOException {
+        sink.count = 0;
+        try (OutputStream out = codec.compress(sink)) {
+            out.write(json);
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long gzipOutputStream() throws IOException {
+        sink.count = 0;
+        try (OutputStream out = new GZIPOutputStream(sink, 8192)) {
+            out.write(json);
+        }
+        return sink.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
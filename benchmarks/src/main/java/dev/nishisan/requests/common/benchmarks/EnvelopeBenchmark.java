@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.jackson.EnvelopeModule;
+import dev.nishisan.requests.common.benchmarks.Fixtures.Product;
+import dev.nishisan.requests.common.benchmarks.Fixtures.ProductListResponse;
+import dev.nishisan.requests.common.benchmarks.Fixtures.ProductRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lifecycle of the request/response envelopes as a controller sees it: build the
+ * request, fill its metadata, build the response around a payload and serialize both.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EnvelopeBenchmark {
+
+    /**
+     * Number of elements in the response payload.
+     */
+    @Param({"1", "100"})
+    private int payloadSize;
+
+    private ObjectMapper mapper;
+    private ObjectMapper envelopeMapper;
+    private Product product;
+    private List<Product> products;
+    private ProductRequest request;
+    private ProductListResponse response;
+
+    @Setup
+    public void setup() {
+        this.mapper = new ObjectMapper();
+        this.envelopeMapper = new ObjectMapper().registerModule(new EnvelopeModule());
+        this.product = new Product("SKU-1", "Product 1", 1000L);
+        this.products = Fixtures.products(payloadSize);
+        this.request = newRequest();
+        this.response = newResponse();
+    }
+
+    /**
+     * Empty request: constructor only.
+     */
+    @Benchmark
+    public ProductRequest requestConstruct() {
+        return new ProductRequest(product);
+    }
+
+    /**
+     * Request with ids and the three headers a gateway usually forwards.
+     */
+    @Benchmark
+    public ProductRequest requestFilled() {
+        return newRequest();
+    }
+
+    /**
+     * Empty response: constructor only, including the response id generation.
+     */
+    @Benchmark
+    public ProductListResponse responseConstruct() {
+        return new ProductListResponse();
+    }
+
+    /**
+     * Response around a list payload, with status and a couple of headers.
+     */
+    @Benchmark
+    public ProductListResponse responseFilled() {
+        return newResponse();
+    }
+
+    @Benchmark
+    public byte[] requestSerialize() throws Exception {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public byte[] responseSerialize() throws Exception {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Same as {@link #requestSerialize()}, with the {@link EnvelopeModule} serializers.
+     */
+    @Benchmark
+    public byte[] requestSerializeEnvelopeModule() throws Exception {
+        return envelopeMapper.writeValueAsBytes(request);
+    }
+
+    /**
+     * Same as {@link #responseSerialize()}, with the {@link EnvelopeModule} serializers.
+     */
+    @Benchmark
+    public byte[] responseSerializeEnvelopeModule() throws Exception {
+        return envelopeMapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Full controller round: build and fill both envelopes, then serialize the response.
+     */
+    @Benchmark
+    public byte[] lifecycle() throws Exception {
+        ProductRequest req = newRequest();
+        ProductListResponse res = new ProductListResponse(req.getRequestId(), products);
+        res.setTraceId(req.getTraceId());
+        res.setStatusCode(200);
+        res.addResponseHeader("X-Correlation-Id", req.getTraceId());
+        return mapper.writeValueAsBytes(res);
+    }
+
+    private ProductRequest newRequest() {
+        ProductRequest req = new ProductRequest(product);
+        req.setRequestId("5f0c7e52-8d7a-4b55-9a0e-3c1f3f7b1a10");
+        req.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        req.addRequestHeader("X-Trace-Id", "4bf92f3577b34da6a3ce929d0e0e4736");
+        req.addRequestHeader("X-Tenant-Id", "tenant-01");
+        req.addRequestHeader("Accept-Language", "pt-BR");
+        return req;
+    }
+
+    private ProductListResponse newResponse() {
+        ProductListResponse res = new ProductListResponse("5f0c7e52-8d7a-4b55-9a0e-3c1f3f7b1a10", products);
+        res.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        res.setStatusCode(200);
+        res.addResponseHeader("X-Correlation-Id", "4bf92f3577b34da6a3ce929d0e0e4736");
+        res.addResponseHeader("Cache-Control", "no-cache");
+        return res;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import dev.nishisan.requests.common.benchmarks.Fixtures.NotFoundException;
+import dev.nishisan.requests.common.benchmarks.Fixtures.NotFoundRuntimeException;
+import dev.nishisan.requests.common.benchmarks.Fixtures.Product;
+import dev.nishisan.requests.common.benchmarks.Fixtures.ProductRequest;
+import dev.nishisan.requests.common.benchmarks.Fixtures.UpstreamIOException;
+import dev.nishisan.requests.common.exception.IBasicException;
+import dev.nishisan.requests.common.exception.StackTracePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throwing and catching the library exceptions the way a service does for expected
+ * business outcomes (404, validation errors). The exception is raised {@code depth} frames
+ * below the catch site, since stack trace capture grows with the stack. {@code stackTraces}
+ * switches the global {@link StackTracePolicy} default to compare against the lightweight mode.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExceptionBenchmark {
+
+    /**
+     * Number of frames between the throw and the catch.
+     */
+    @Param({"1", "32"})
+    private int depth;
+
+    /**
+     * Global stack trace policy default.
+     */
+    @Param({"true", "false"})
+    private boolean stackTraces;
+
+    private ProductRequest request;
+
+    @Setup
+    public void setup() {
+        this.request = new ProductRequest(new Product("SKU-1", "Product 1", 1000L));
+        StackTracePolicy.setDefault(stackTraces);
+    }
+
+    @TearDown
+    public void tearDown() {
+        StackTracePolicy.setDefault(true);
+    }
+
+    @Benchmark
+    public IBasicException basicException() {
+        try {
+            throwChecked(depth);
+            return null;
+        } catch (NotFoundException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public IBasicException basicRuntimeException() {
+        try {
+            throwRuntime(depth);
+            return null;
+        } catch (NotFoundRuntimeException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public IBasicException basicIOException() {
+        try {
+            throwIO(depth);
+            return null;
+        } catch (UpstreamIOException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * Throws the frozen, pre-allocated instance; independent of {@code stackTraces}.
+     */
+    @Benchmark
+    public IBasicException sharedInstance() {
+        try {
+            throwShared(depth);
+            return null;
+        } catch (NotFoundRuntimeException ex) {
+            return ex;
+        }
+    }
+
+    private void throwChecked(int remaining) throws NotFoundException {
+        if (remaining <= 1) {
+            throw new NotFoundException("Product not found", request).<NotFoundException>details("sku", "SKU-1");
+        }
+        throwChecked(remaining - 1);
+    }
+
+    private void throwRuntime(int remaining) {
+        if (remaining <= 1) {
+            throw new NotFoundRuntimeException("Product not found", request).<NotFoundRuntimeException>details("sku", "SKU-1");
+        }
+        throwRuntime(remaining - 1);
+    }
+
+    private void throwIO(int remaining) throws UpstreamIOException {
+        if (remaining <= 1) {
+            throw new UpstreamIOException("Upstream unavailable", request).<UpstreamIOException>details("sku", "SKU-1");
+        }
+        throwIO(remaining - 1);
+    }
+
+    private void throwShared(int remaining) {
+        if (remaining <= 1) {
+            throw NotFoundRuntimeException.SHARED;
+        }
+        throwShared(remaining - 1);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import dev.nishisan.requests.common.exception.BasicException;
+import dev.nishisan.requests.common.exception.BasicIOException;
+import dev.nishisan.requests.common.exception.BasicRuntimeException;
+import dev.nishisan.requests.common.exception.IBasicException;
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Concrete envelope and exception types used by the benchmark suites. They mirror what a
+ * typical service declares on top of the library, without adding any behavior of their own.
+ *
+ * @author Lucas Nishimura
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    public record Product(String sku, String name, long price) {
+    }
+
+    public static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product("SKU-" + i, "Product " + i, 1000L + i));
+        }
+        return products;
+    }
+
+    public static class ProductRequest extends AbsRequest<Product> {
+
+        public ProductRequest() {
+        }
+
+        public ProductRequest(Product payload) {
+            super(payload);
+        }
+    }
+
+    public static class ProductListResponse extends AbsResponse<List<Product>> {
+
+        public ProductListResponse() {
+        }
+
+        public ProductListResponse(String sourceRequestId, List<Product> payload) {
+            super(sourceRequestId, payload);
+        }
+    }
+
+    public static class NotFoundException extends BasicException {
+
+        public NotFoundException(String message, IRequest<?> request) {
+            super(message, request);
+            this.statusCode = 404;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends IBasicException> T details(String key, Object value) {
+            addDetail(key, value);
+            return (T) this;
+        }
+    }
+
+    public static class NotFoundRuntimeException extends BasicRuntimeException {
+
+        /**
+         * Shared, detail-free instance: no stack trace, no suppression, immutable.
+         */
+        public static final NotFoundRuntimeException SHARED = new NotFoundRuntimeException("Product not found").freeze();
+
+        public NotFoundRuntimeException(String message, IRequest<?> request) {
+            super(message, request);
+            this.statusCode = 404;
+        }
+
+        private NotFoundRuntimeException(String message) {
+            super(message, null, false, false, null, 404, new HashMap<>());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends IBasicException> T details(String key, Object value) {
+            addDetail(key, value);
+            return (T) this;
+        }
+    }
+
+    public static class UpstreamIOException extends BasicIOException {
+
+        public UpstreamIOException(String message, IRequest<?> request) {
+            super(message, request);
+            this.statusCode = 502;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends IBasicException> T details(String key, Object value) {
+            addDetail(key, value);
+            return (T) this;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.jackson.EnvelopeModule;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.RawJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes an envelope of 5000 products to a discarding stream: serialized from the objects,
+ * and pre-encoded in a heap array or a direct buffer.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RawJsonBenchmark {
+
+    public static class SnapshotResponse extends AbsResponse<RawJson> {
+
+        public SnapshotResponse(RawJson payload) {
+            super(payload);
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new EnvelopeModule())
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private List<Fixtures.Product> products;
+    private RawJson heap;
+    private RawJson direct;
+
+    @Setup
+    public void setup() throws IOException {
+        products = Fixtures.products(5000);
+        byte[] json = mapper.writeValueAsBytes(products);
+        heap = RawJson.of(json);
+        direct = RawJson.of(ByteBuffer.allocateDirect(json.length).put(json).flip());
+    }
+
+    @Benchmark
+    public void objects() throws IOException {
+        mapper.writeValue(sink, new Fixtures.ProductListResponse(null, products));
+    }
+
+    @Benchmark
+    public void rawHeap() throws IOException {
+        mapper.writeValue(sink, new SnapshotResponse(heap));
+    }
+
+    @Benchmark
+    public void rawDirect() throws IOException {
+        mapper.writeValue(sink, new SnapshotResponse(direct));
+    }
+}
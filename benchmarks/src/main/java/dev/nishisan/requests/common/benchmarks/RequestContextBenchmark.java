@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import dev.nishisan.requests.common.context.RequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and binding the {@link RequestContext} with a plain {@link ThreadLocal}, the
+ * binding used before JDK 25. On JDK 25 and later the context is bound with
+ * {@code ScopedValue}; run the suite there to measure that binding, as on earlier JDKs both sides
+ * are thread-locals. The binding in use is printed at setup.
+ *
+ * Reads are done {@value #READS} at a time inside one bound scope, as code deep in a request
+ * does, so the cost of binding is measured separately.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RequestContextBenchmark {
+
+    private static final int READS = 16;
+
+    private static final ThreadLocal<RequestContext> THREAD_LOCAL = new ThreadLocal<>();
+
+    private final RequestContext context = new RequestContext("trace-1", "request-1");
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.out.println("RequestContext binding: " + (RequestContext.isScoped() ? "ScopedValue" : "ThreadLocal"));
+    }
+
+    @Benchmark
+    public void contextRead(Blackhole bh) {
+        RequestContext.run(context, () -> {
+            for (int i = 0; i < READS; i++) {
+                bh.consume(RequestContext.current());
+            }
+        });
+    }
+
+    @Benchmark
+    public void threadLocalRead(Blackhole bh) {
+        bindThreadLocal(() -> {
+            for (int i = 0; i < READS; i++) {
+                bh.consume(THREAD_LOCAL.get());
+            }
+        });
+    }
+
+    @Benchmark
+    public void contextBind(Blackhole bh) {
+        RequestContext.run(context, () -> bh.consume(RequestContext.current()));
+    }
+
+    @Benchmark
+    public void threadLocalBind(Blackhole bh) {
+        bindThreadLocal(() -> bh.consume(THREAD_LOCAL.get()));
+    }
+
+    private void bindThreadLocal(Runnable operation) {
+        RequestContext previous = THREAD_LOCAL.get();
+        THREAD_LOCAL.set(context);
+        try {
+            operation.run();
+        } finally {
+            if (previous == null) {
+                THREAD_LOCAL.remove();
+            } else {
+                THREAD_LOCAL.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.cache.PageableCacheKey;
+import dev.nishisan.requests.common.cache.ResponseCache;
+import dev.nishisan.requests.common.dto.PageableDTO;
+import dev.nishisan.requests.common.jackson.EnvelopeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering a list request of 100 products and writing it as JSON: from the service
+ * each time, from the cache, and from the cache with the payload serialized when stored.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResponseCacheBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new EnvelopeModule());
+    private final ResponseCache objectCache = new ResponseCache(1000, Duration.ofHours(1), null);
+    private final ResponseCache serializedCache = new ResponseCache(1000, Duration.ofHours(1), mapper);
+    private final PageableDTO pageable = new PageableDTO(0, 100, "name", "asc", "product");
+
+    @Benchmark
+    public byte[] uncached() throws Exception {
+        return mapper.writeValueAsBytes(load());
+    }
+
+    @Benchmark
+    public byte[] cachedObject() throws Exception {
+        return mapper.writeValueAsBytes(objectCache.get(PageableCacheKey.of("products#list", pageable), null,
+                Fixtures.ProductListResponse::new, this::load));
+    }
+
+    @Benchmark
+    public byte[] cachedSerialized() throws Exception {
+        return mapper.writeValueAsBytes(serializedCache.get(PageableCacheKey.of("products#list", pageable), null,
+                Fixtures.ProductListResponse::new, this::load));
+    }
+
+    private Fixtures.ProductListResponse load() {
+        List<Fixtures.Product> products = Fixtures.products(pageable.getSize());
+        return new Fixtures.ProductListResponse(null, products);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import dev.nishisan.requests.common.benchmarks.Fixtures.ProductListResponse;
+import dev.nishisan.requests.common.response.id.ResponseIdGenerator;
+import dev.nishisan.requests.common.response.id.ResponseIdStrategy;
+import dev.nishisan.requests.common.response.id.ResponseIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the built-in response ID strategies, alone and through the {@code AbsResponse}
+ * constructor, with and without lazy generation. Runs with several threads since contention on
+ * the entropy source is part of what is being measured.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+public class ResponseIdBenchmark {
+
+    @Param({"UUID", "UUID_V7", "ULID", "THREAD_COUNTER"})
+    private ResponseIdStrategy strategy;
+
+    @Param({"false", "true"})
+    private boolean lazy;
+
+    private ResponseIdGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.generator = strategy.create();
+        ResponseIds.configure(generator, lazy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ResponseIds.configure(ResponseIdStrategy.UUID.create(), false);
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.nextId();
+    }
+
+    /**
+     * Response that is built and dropped without its ID ever being read.
+     */
+    @Benchmark
+    public ProductListResponse responseUnread() {
+        return new ProductListResponse();
+    }
+
+    /**
+     * Response whose ID is read once, as logging or serialization would.
+     */
+    @Benchmark
+    public String responseRead() {
+        return new ProductListResponse().getResponseId();
+    }
+}
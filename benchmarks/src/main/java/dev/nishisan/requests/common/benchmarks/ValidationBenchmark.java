@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.benchmarks;
+
+import dev.nishisan.requests.common.annotations.RequiredField;
+import dev.nishisan.requests.common.annotations.RequiredField.AllowedValue;
+import dev.nishisan.requests.common.validation.RequiredFieldValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RequiredFieldValidator} on a valid payload (the common case, expected to be
+ * allocation-free) and on an invalid one.
+ *
+ * @author Lucas Nishimura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ValidationBenchmark {
+
+    public record Order(@RequiredField String sku,
+                        @RequiredField Integer quantity,
+                        @RequiredField(allowedValues = {
+                            @AllowedValue(type = "string", value = "STANDARD"),
+                            @AllowedValue(type = "string", value = "EXPRESS")}) String shipping,
+                        @RequiredField String customerId,
+                        String notes) {
+    }
+
+    private final Order valid = new Order("SKU-1", 2, "EXPRESS", "C-1", null);
+    private final Order invalid = new Order("", null, "DRONE", "C-1", null);
+
+    @Benchmark
+    public Map<String, Object> valid() {
+        return RequiredFieldValidator.check(valid);
+    }
+
+    @Benchmark
+    public Map<String, Object> invalid() {
+        return RequiredFieldValidator.check(invalid);
+    }
+}
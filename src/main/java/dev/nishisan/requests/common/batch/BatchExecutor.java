@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.batch;
+
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+import dev.nishisan.requests.common.exception.ApiErrorRenderer;
+import dev.nishisan.requests.common.exception.IBasicException;
+import dev.nishisan.requests.common.exception.InvalidBatchRequestException;
+import dev.nishisan.requests.common.request.BatchRequest;
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.response.BatchItem;
+import dev.nishisan.requests.common.response.BatchResponse;
+import dev.nishisan.requests.common.response.IResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs the items of a {@link BatchRequest} in parallel, one virtual thread per item.
+ *
+ * At most {@code maxConcurrency} items of a batch run at once, so a large batch cannot flood
+ * the resources its handler uses. Each item runs with a {@link RequestContext} carrying its own
+ * request ID, the trace ID of the batch, and its own credential or else the one of the batch,
+ * so its response and its errors refer to the item. The trace ID of an item is not used: items
+ * deserialized within a request carry the trace ID of that request, not one the client chose.
+ * A failing item does not fail the batch: its {@link BatchItem} carries the error, rendered the
+ * same way the exception handler renders it, and the batch answers {@code 207 Multi-Status}.
+ * Failures that are not library exceptions are logged, since their item only reports an
+ * anonymous 500.
+ *
+ * Instances are stateless and thread safe.
+ *
+ * @author Lucas Nishimura
+ */
+public class BatchExecutor {
+
+    /**
+     * Default number of items of a batch run at once.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+    /**
+     * Default number of items a batch can carry.
+     */
+    public static final int DEFAULT_MAX_ITEMS = 100;
+
+    private static final System.Logger LOGGER = System.getLogger(BatchExecutor.class.getName());
+
+    private static final ThreadFactory THREADS = Thread.ofVirtual().name("batch-", 0).factory();
+
+    private final int maxConcurrency;
+    private final int maxItems;
+    private final ApiErrorRenderer renderer;
+
+    /**
+     * Executor with the default limits.
+     */
+    public BatchExecutor() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_MAX_ITEMS, new ApiErrorRenderer());
+    }
+
+    /**
+     * @param maxConcurrency the number of items of a batch run at once
+     * @param maxItems       the number of items a batch can carry
+     * @param renderer       renders the errors of failed items
+     */
+    public BatchExecutor(int maxConcurrency, int maxItems, ApiErrorRenderer renderer) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxItems = maxItems;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Handles every item of a batch and waits for all of them.
+     *
+     * If the calling thread is interrupted, the running items are interrupted, the ones not
+     * started yet are reported as 503 and the interrupt flag is restored.
+     *
+     * @param batch   the batch
+     * @param handler handles each item
+     * @param <T>     the type of the items
+     * @param <R>     the type of the item responses
+     * @return one result per item, in the order of the batch
+     * @throws InvalidBatchRequestException if the batch carries more than {@code maxItems} items
+     */
+    public <T extends IRequest<?>, R extends IResponse<?>> BatchResponse<R> execute(BatchRequest<T> batch,
+            BatchHandler<? super T, ? extends R> handler) {
+        List<T> items = batch.getPayload() == null ? List.of() : batch.getPayload();
+        if (items.size() > maxItems) {
+            throw new InvalidBatchRequestException("Batch has " + items.size() + " items, at most " + maxItems + " are allowed")
+                    .<InvalidBatchRequestException>details("items", items.size())
+                    .<InvalidBatchRequestException>details("maxItems", maxItems);
+        }
+        AtomicReferenceArray<BatchItem<R>> results = new AtomicReferenceArray<>(items.size());
+        Semaphore permits = new Semaphore(Math.min(maxConcurrency, Math.max(1, items.size())));
+        boolean interrupted = false;
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(THREADS)) {
+            for (int i = 0; i < items.size(); i++) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                    executor.shutdownNow();
+                    break;
+                }
+                int index = i;
+                T item = items.get(i);
+                RequestContext context = new RequestContext(batch.getTraceId(), item.getRequestId(),
+                        item.getUserCredential() != null ? item.getUserCredential() : batch.getUserCredential());
+                executor.execute(() -> {
+                    try {
+                        results.set(index, RequestContext.<BatchItem<R>, RuntimeException>call(context, () -> handle(item, handler)));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        List<BatchItem<R>> outcome = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem<R> result = results.get(i);
+            outcome.add(result != null ? result : unfinished(items.get(i), interrupted));
+        }
+        return new BatchResponse<>(batch.getRequestId(), outcome);
+    }
+
+    /**
+     * @return the number of items of a batch run at once
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return the number of items a batch can carry
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    private <T extends IRequest<?>, R extends IResponse<?>> BatchItem<R> handle(T item, BatchHandler<? super T, ? extends R> handler) {
+        try {
+            R response = handler.handle(item);
+            if (response == null) {
+                return new BatchItem<>(item.getRequestId(), 204, null, null);
+            }
+            if (response.getSourceRequestId() == null) {
+                response.setSourceRequestId(item.getRequestId());
+            }
+            int status = response.getStatusCode() == 0 ? 200 : response.getStatusCode();
+            return new BatchItem<>(item.getRequestId(), status, response, null);
+        } catch (Exception ex) {
+            if (ex instanceof IBasicException basic) {
+                ApiErrorDTO error = renderer.render(basic);
+                return new BatchItem<>(item.getRequestId(), error.getStatusCode(), null, error);
+            }
+            LOGGER.log(System.Logger.Level.ERROR, "Batch item " + item.getRequestId() + " failed", ex);
+            return new BatchItem<>(item.getRequestId(), 500, null, error(500, "Internal Server Error"));
+        }
+    }
+
+    private static <R> BatchItem<R> unfinished(IRequest<?> item, boolean interrupted) {
+        ApiErrorDTO error = interrupted ? error(503, "Batch interrupted before the item ran") : error(500, "Internal Server Error");
+        return new BatchItem<>(item.getRequestId(), error.getStatusCode(), null, error);
+    }
+
+    private static ApiErrorDTO error(int status, String message) {
+        ApiErrorDTO error = new ApiErrorDTO();
+        error.setMsg(message);
+        error.setStatusCode(status);
+        return error;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.batch;
+
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.response.IResponse;
+
+/**
+ * Handles one sub-request of a batch.
+ *
+ * @param <T> the type of the sub-requests
+ * @param <R> the type of the responses
+ * @author Lucas Nishimura
+ */
+@FunctionalInterface
+public interface BatchHandler<T extends IRequest<?>, R extends IResponse<?>> {
+
+    /**
+     * @param request the sub-request
+     * @return its response
+     * @throws Exception when the sub-request fails; an {@code IBasicException} keeps its status
+     *                   code, anything else is reported as a 500
+     */
+    R handle(T request) throws Exception;
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * Concurrent cache bounded in entries, with a time to live, and no dependency.
+ *
+ * Entries live in a {@link ConcurrentHashMap}; a read is a map lookup, an expiry check and, on
+ * the first read since the entry was last considered for eviction, one write of its reference
+ * bit. Eviction uses the CLOCK (second chance) approximation of LRU: entries are queued in
+ * insertion order, and the writer that takes the cache over its bound walks the queue, giving
+ * entries read since their last pass another round and removing the first one that was not.
+ * Nothing is locked: concurrent writers may evict a few entries too many.
+ *
+ * Expired entries are dropped when read or when reached by the eviction walk.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author Lucas Nishimura
+ */
+public class BoundedCache<K, V> {
+
+    private static final class Entry<K, V> {
+
+        final K key;
+        final V value;
+        final long expiresAt;
+        volatile boolean referenced;
+
+        Entry(K key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    /**
+     * @param maxEntries the number of entries kept
+     * @param ttl        how long an entry is kept after being stored
+     */
+    public BoundedCache(int maxEntries, Duration ttl) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @param key the key
+     * @return the value, or null when absent or expired
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, replacing the current one, and evicts entries when over the bound.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        Entry<K, V> entry = new Entry<>(key, value, System.nanoTime() + ttlNanos);
+        entries.put(key, entry);
+        clock.offer(entry);
+        if (queued.incrementAndGet() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * @param key the key to remove
+     */
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes an entry only if it still holds the given value.
+     *
+     * @param key   the key
+     * @param value the value expected
+     */
+    public void remove(K key, V value) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry != null && entry.value == value) {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * @param filter selects the entries to remove, from their key and value
+     */
+    public void removeIf(BiPredicate<? super K, ? super V> filter) {
+        entries.entrySet().removeIf(entry -> filter.test(entry.getKey(), entry.getValue().value));
+        purge();
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        entries.clear();
+        purge();
+    }
+
+    /**
+     * @return the number of entries, expired ones included until they are dropped
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of entries kept
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Drops the queued entries that were replaced or removed, so their values can be collected.
+     */
+    private void purge() {
+        for (int budget = queued.get(); budget > 0; budget--) {
+            Entry<K, V> entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entries.get(entry.key) == entry) {
+                clock.offer(entry);
+            } else {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Walks the clock until the cache is within its bound and the queue holds at most twice as
+     * many entries as the bound; queued entries that were replaced or removed are dropped on the
+     * way.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        int budget = 2 * queued.get() + 1;
+        while (budget-- > 0 && (entries.size() > maxEntries || queued.get() > 2 * maxEntries)) {
+            Entry<K, V> entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entries.get(entry.key) != entry) {
+                queued.decrementAndGet();
+            } else if (entry.referenced && !entry.isExpired(now) && entries.size() > maxEntries) {
+                entry.referenced = false;
+                clock.offer(entry);
+            } else if (entries.size() > maxEntries || entry.isExpired(now)) {
+                entries.remove(entry.key, entry);
+                queued.decrementAndGet();
+            } else {
+                clock.offer(entry);
+            }
+        }
+    }
+}
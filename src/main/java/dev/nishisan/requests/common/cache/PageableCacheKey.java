@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.cache;
+
+import dev.nishisan.requests.common.dto.PageableDTO;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Cache key of a paged read: the endpoint, the paging parameters and the caller scope.
+ *
+ * The parameters are normalized so requests meaning the same page share a key: a missing page
+ * is page 0 (and the page is ignored with a cursor), sort expressions lose the blanks around
+ * their properties, the direction is upper case and defaults to {@code ASC}, and blank queries
+ * and cursors are absent. The hash is computed once.
+ *
+ * @author Lucas Nishimura
+ */
+public final class PageableCacheKey {
+
+    private final String endpoint;
+    private final Object scope;
+    private final int page;
+    private final Integer size;
+    private final String sort;
+    private final String direction;
+    private final String query;
+    private final String cursor;
+    private final boolean countTotal;
+    private final int hash;
+
+    private PageableCacheKey(String endpoint, PageableDTO pageable, Object scope) {
+        this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+        this.scope = scope;
+        this.cursor = blankToNull(pageable.getCursor());
+        this.page = cursor != null || pageable.getPage() == null ? 0 : pageable.getPage();
+        this.size = pageable.getSize();
+        this.sort = normalizeSort(pageable.getSort());
+        this.direction = pageable.getDirection() == null || pageable.getDirection().isBlank() ? "ASC"
+                : pageable.getDirection().strip().toUpperCase(Locale.ROOT);
+        this.query = blankToNull(pageable.getQuery());
+        this.countTotal = pageable.isCountTotal();
+        this.hash = Objects.hash(endpoint, scope, page, size, sort, direction, query, cursor, countTotal);
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. {@code "products#list"}
+     * @param pageable the paging parameters
+     * @return the key, shared by every caller
+     */
+    public static PageableCacheKey of(String endpoint, PageableDTO pageable) {
+        return new PageableCacheKey(endpoint, pageable, null);
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. {@code "products#list"}
+     * @param pageable the paging parameters
+     * @param scope    the part of the caller results depend on, e.g. the user ID, or null
+     * @return the key
+     */
+    public static PageableCacheKey of(String endpoint, PageableDTO pageable, Object scope) {
+        return new PageableCacheKey(endpoint, pageable, scope);
+    }
+
+    /**
+     * @return the endpoint
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the scope, or null
+     */
+    public Object getScope() {
+        return scope;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PageableCacheKey other)) {
+            return false;
+        }
+        return hash == other.hash
+                && page == other.page
+                && countTotal == other.countTotal
+                && endpoint.equals(other.endpoint)
+                && Objects.equals(scope, other.scope)
+                && Objects.equals(size, other.size)
+                && Objects.equals(sort, other.sort)
+                && direction.equals(other.direction)
+                && Objects.equals(query, other.query)
+                && Objects.equals(cursor, other.cursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + "[scope=" + scope + ", page=" + page + ", size=" + size + ", sort=" + sort + ", direction="
+                + direction + ", query=" + query + ", cursor=" + cursor + ", countTotal=" + countTotal + "]";
+    }
+
+    private static String normalizeSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(sort.length());
+        for (String token : sort.split(",")) {
+            String property = token.strip();
+            if (property.length() > 1 && (property.charAt(0) == '-' || property.charAt(0) == '+')) {
+                property = property.charAt(0) + property.substring(1).strip();
+            }
+            if (!property.isEmpty()) {
+                if (normalized.length() > 0) {
+                    normalized.append(',');
+                }
+                normalized.append(property);
+            }
+        }
+        return normalized.length() == 0 ? null : normalized.toString();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
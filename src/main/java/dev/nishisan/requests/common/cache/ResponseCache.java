@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.coalescing.SingleFlight;
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.RawJson;
+import dev.nishisan.requests.common.response.StreamingResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Server-side cache of finished responses, e.g. keyed on a {@link PageableCacheKey}.
+ *
+ * A hit skips the service call: the caller gets its own response from the factory, filled from
+ * the cached one with {@link AbsResponse#copyFrom}, so its IDs are its own and the payload is
+ * shared. When the cache has an {@link ObjectMapper}, payloads are also serialized once, when
+ * stored, and a hit skips their JSON serialization as well (with the {@code EnvelopeModule}).
+ * Concurrent misses of the same key load it once.
+ *
+ * Only successful responses (status 0 or 2xx) are stored. Entries expire after the time to live
+ * and are evicted by {@link BoundedCache} beyond the maximum. They can also be invalidated by
+ * key, by one of the tags given when they were loaded (e.g. {@code "products"}, invalidated when
+ * a product changes) or all at once. A load that overlaps an invalidation is not kept, so an
+ * invalidation is never undone by a response computed before it.
+ *
+ * Cached payloads must not be modified. {@link StreamingResponse}s cannot be cached, and a loader
+ * must return a response: a null one fails every caller waiting for it with an
+ * {@link IllegalStateException} and is not cached.
+ *
+ * @author Lucas Nishimura
+ */
+public class ResponseCache {
+
+    private static final System.Logger LOGGER = System.getLogger(ResponseCache.class.getName());
+
+    private record Cached(AbsResponse<?> response, Set<String> tags) {
+    }
+
+    private final BoundedCache<Object, Cached> entries;
+    private final SingleFlight<Object, Cached> flights = new SingleFlight<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ObjectMapper serializer;
+
+    /**
+     * @param maxEntries the number of responses kept
+     * @param ttl        how long a response is kept
+     * @param serializer serializes payloads when they are stored, null to serialize them on
+     *                   every write
+     */
+    public ResponseCache(int maxEntries, Duration ttl, ObjectMapper serializer) {
+        this.entries = new BoundedCache<>(maxEntries, ttl);
+        this.serializer = serializer;
+    }
+
+    /**
+     * Returns the cached response for a key, loading it on a miss.
+     *
+     * @param key     the key, with value-based equals and hashCode
+     * @param request the request being answered, whose ID becomes the {@code sourceRequestId}
+     * @param factory creates the response returned to the caller
+     * @param loader  computes the response on a miss
+     * @param tags    tags to invalidate the response with
+     * @param <T>     the type of the response payload
+     * @param <R>     the type of the response
+     * @param <X>     the exception thrown by the loader
+     * @return a response of the caller's own
+     * @throws X what the loader threw; failures are not cached
+     * @throws IllegalStateException if the loader returned null or a {@link StreamingResponse},
+     *                               neither of which is cached
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R extends AbsResponse<T>, X extends Exception> R get(Object key, IRequest<?> request, Supplier<R> factory,
+            SingleFlight.Computation<? extends R, X> loader, String... tags) throws X {
+        Cached cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+        } else {
+            cached = flights.execute(key, () -> load(key, loader, tags));
+        }
+        R response = factory.get();
+        response.copyFrom((AbsResponse<T>) cached.response());
+        if (request != null && request.getRequestId() != null) {
+            response.setSourceRequestId(request.getRequestId());
+        }
+        return response;
+    }
+
+    /**
+     * @param key the key of the response to drop
+     */
+    public void invalidate(Object key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    /**
+     * @param tag drops every response loaded with this tag
+     */
+    public void invalidateTag(String tag) {
+        invalidations.incrementAndGet();
+        entries.removeIf((key, cached) -> cached.tags().contains(tag));
+    }
+
+    /**
+     * Drops every response.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return the number of cached responses
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to load the response
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    private <R extends AbsResponse<?>, X extends Exception> Cached load(Object key, SingleFlight.Computation<? extends R, X> loader,
+            String[] tags) throws X {
+        Cached cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long invalidation = invalidations.get();
+        R response = loader.compute();
+        if (response == null) {
+            throw new IllegalStateException("The loader of " + key + " returned no response");
+        }
+        if (response instanceof StreamingResponse) {
+            throw new IllegalStateException("StreamingResponse cannot be cached");
+        }
+        cached = new Cached(response, tags.length == 0 ? Set.of() : Set.copyOf(Arrays.asList(tags)));
+        int status = response.getStatusCode();
+        if (status == 0 || status >= 200 && status < 300) {
+            serialize(response);
+            entries.put(key, cached);
+            if (invalidations.get() != invalidation) {
+                entries.remove(key, cached);
+            }
+        }
+        return cached;
+    }
+
+    private void serialize(AbsResponse<?> response) {
+        if (serializer == null || response.getPayload() == null || response.serializedPayload() != null) {
+            return;
+        }
+        try {
+            response.attachSerializedPayload(RawJson.of(serializer.writeValueAsBytes(response.getPayload())));
+        } catch (JsonProcessingException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not serialize a cached payload, it will be serialized on every hit", ex);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.coalescing;
+
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import dev.nishisan.requests.common.uc.IUserCredential;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical read requests: while a request is being handled, other requests for the
+ * same operation with an equal payload wait for it instead of hitting the backend again.
+ *
+ * Requests are identical when they target the same operation, are of the same class and have
+ * equal payloads (e.g. two {@code PageableDTO}s with the same page, sort and query). A scope
+ * function adds the part of the caller that changes the result, typically the user when
+ * results depend on permissions; see {@link #perUser()}. A scope function returns
+ * {@link #UNSHARED} for requests that must not be coalesced at all, e.g. when the caller cannot
+ * be identified: those run their own computation.
+ *
+ * Every caller, the one that ran the computation included, gets its own response from the
+ * factory, filled with {@link AbsResponse#copyFrom}: its {@code sourceRequestId} is the ID of
+ * the caller's request and its other IDs come from the caller's own {@code RequestContext}; the
+ * payload is shared. Payloads must therefore not be modified once
+ * returned. A failure is thrown to every caller.
+ *
+ * Only use it for reads whose result can be shared: the computation runs once, with the
+ * credential of whichever caller came first. {@link StreamingResponse}s, which can only be
+ * written once, are rejected.
+ *
+ * @author Lucas Nishimura
+ */
+public class RequestCoalescer {
+
+    /**
+     * Scope of a request that must not be coalesced with any other.
+     */
+    public static final Object UNSHARED = new Object();
+
+    private record Key(String operation, Class<?> requestType, Object payload, Object scope) {
+    }
+
+    private final SingleFlight<Key, AbsResponse<?>> flights = new SingleFlight<>();
+    private final Function<? super IRequest<?>, ?> scope;
+
+    /**
+     * Coalescer sharing results between all callers.
+     */
+    public RequestCoalescer() {
+        this(request -> null);
+    }
+
+    /**
+     * @param scope extracts from a request the part of the caller results depend on; requests
+     *              are only coalesced when their scopes are equal
+     */
+    public RequestCoalescer(Function<? super IRequest<?>, ?> scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * @return a coalescer sharing results between requests of the same user only; requests
+     * without a credential or user ID are not coalesced
+     */
+    public static RequestCoalescer perUser() {
+        return new RequestCoalescer(request -> {
+            IUserCredential<?> credential = request.getUserCredential();
+            Object userId = credential == null ? null : credential.getUserId();
+            return userId == null ? UNSHARED : userId;
+        });
+    }
+
+    /**
+     * Handles a request, or waits for an identical one in flight.
+     *
+     * @param operation   the name of the operation, e.g. the endpoint, so equal payloads sent to
+     *                    different operations are not mixed up
+     * @param request     the request
+     * @param factory     creates the response returned to the caller
+     * @param computation handles the request
+     * @param <T>         the type of the response payload
+     * @param <R>         the type of the response
+     * @param <X>         the exception thrown by the computation
+     * @return a response of the caller's own, with the shared result
+     * @throws X what the computation threw
+     * @throws IllegalStateException if the computation returned null or a {@link StreamingResponse}
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R extends AbsResponse<T>, X extends Exception> R execute(String operation, IRequest<?> request,
+            Supplier<R> factory, SingleFlight.Computation<? extends R, X> computation) throws X {
+        SingleFlight.Computation<R, X> checked = () -> {
+            R computed = computation.compute();
+            if (computed == null) {
+                throw new IllegalStateException("The computation of " + operation + " returned no response");
+            }
+            if (computed instanceof StreamingResponse) {
+                throw new IllegalStateException("StreamingResponse cannot be coalesced");
+            }
+            return computed;
+        };
+        Object requestScope = scope.apply(request);
+        if (requestScope == UNSHARED) {
+            return checked.compute();
+        }
+        Key key = new Key(operation, request.getClass(), request.getPayload(), requestScope);
+        AbsResponse<T> result = (AbsResponse<T>) flights.execute(key, checked);
+        R response = factory.get();
+        response.copyFrom(result);
+        if (request.getRequestId() != null) {
+            response.setSourceRequestId(request.getRequestId());
+        }
+        return response;
+    }
+
+    /**
+     * @return the number of distinct requests in flight
+     */
+    public int inFlight() {
+        return flights.inFlight();
+    }
+}
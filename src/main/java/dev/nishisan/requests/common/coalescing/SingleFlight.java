@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.coalescing;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs one computation per key at a time: callers asking for a key whose computation is in
+ * flight wait for it and get its result (or its exception) instead of starting another one.
+ *
+ * Looking up an in-flight computation is a single {@link ConcurrentHashMap#get}; the first caller
+ * registers its computation with {@code putIfAbsent} and runs it on its own thread. Waiting
+ * callers park on a {@link CompletableFuture}, which does not pin virtual threads. The key is
+ * removed once the computation ends, so results are never kept: a caller arriving afterwards
+ * runs the computation again.
+ *
+ * A computation must not ask for its own key, it would wait for itself.
+ *
+ * @param <K> the type of the keys, with value-based equals and hashCode
+ * @param <V> the type of the results
+ * @author Lucas Nishimura
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * A computation that may throw a checked exception.
+     *
+     * @param <V> the type of the result
+     * @param <X> the exception thrown
+     */
+    @FunctionalInterface
+    public interface Computation<V, X extends Exception> {
+
+        V compute() throws X;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the computation, or waits for the one in flight for the same key.
+     *
+     * @param key         the key
+     * @param computation computes the result when no computation is in flight for the key
+     * @param <X>         the exception thrown by the computation
+     * @return the result of the computation
+     * @throws X what the computation threw, for the caller that ran it and those that waited
+     */
+    public <X extends Exception> V execute(K key, Computation<? extends V, X> computation) throws X {
+        CompletableFuture<V> flight = flights.get(key);
+        if (flight == null) {
+            CompletableFuture<V> own = new CompletableFuture<>();
+            flight = flights.putIfAbsent(key, own);
+            if (flight == null) {
+                return run(key, own, computation);
+            }
+        }
+        return await(flight);
+    }
+
+    /**
+     * @return the number of computations in flight
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private <X extends Exception> V run(K key, CompletableFuture<V> flight, Computation<? extends V, X> computation) throws X {
+        try {
+            V result = computation.compute();
+            flight.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <X extends Exception> V await(CompletableFuture<V> flight) throws X {
+        try {
+            return flight.join();
+        } catch (CompletionException | CancellationException ex) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (X) cause;
+        }
+    }
+}
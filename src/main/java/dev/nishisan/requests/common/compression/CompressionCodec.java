@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A content coding (e.g. {@code gzip}) that response bodies can be compressed with.
+ *
+ * Implementations are shared by all requests and must be thread-safe; the streams they return
+ * are used by a single thread.
+ *
+ * @author Lucas Nishimura
+ */
+public interface CompressionCodec {
+
+    /**
+     * Gets the name of the coding, as used in {@code Accept-Encoding} and
+     * {@code Content-Encoding}.
+     *
+     * @return the coding name, in lower case
+     */
+    public String encoding();
+
+    /**
+     * Opens a stream that compresses what is written to it into {@code target}.
+     *
+     * Closing the returned stream writes the end of the compressed data and releases what the
+     * codec holds for it, but leaves {@code target} open. Flushing it pushes the data written so
+     * far to {@code target}, at some cost in compression ratio.
+     *
+     * @param target the stream receiving the compressed bytes
+     * @return the compressing stream
+     * @throws IOException if the beginning of the compressed data cannot be written
+     */
+    public OutputStream compress(OutputStream target) throws IOException;
+}
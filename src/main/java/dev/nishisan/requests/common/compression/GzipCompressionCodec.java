@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.compression;
+
+import dev.nishisan.requests.common.pool.StripedPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The {@code gzip} coding, with pooled deflaters.
+ *
+ * {@link java.util.zip.GZIPOutputStream} creates a {@link Deflater}, with its native memory, and
+ * a new buffer for every stream. Here the deflater, the checksum and the output buffer are kept
+ * in a {@link StripedPool} and reset between streams, so compressing a response allocates little
+ * more than the stream object.
+ *
+ * @author Lucas Nishimura
+ */
+public class GzipCompressionCodec implements CompressionCodec {
+
+    /**
+     * Size of the buffer receiving the deflated bytes before they are written to the target.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, // magic
+            Deflater.DEFLATED, // compression method
+            0,                 // flags
+            0, 0, 0, 0,        // modification time
+            0,                 // extra flags
+            (byte) 0xff        // operating system: unknown
+    };
+
+    private final StripedPool<Deflation> pool;
+
+    /**
+     * Creates a codec with the default compression level.
+     */
+    public GzipCompressionCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level the compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public GzipCompressionCodec(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.pool = new StripedPool<>(() -> new Deflation(level), Deflation::reset);
+    }
+
+    @Override
+    public String encoding() {
+        return "gzip";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream target) throws IOException {
+        target.write(HEADER);
+        return new GzipStream(pool.acquire(), target);
+    }
+
+    /**
+     * Reusable state of one compression.
+     */
+    private static final class Deflation {
+
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] single = new byte[1];
+
+        private Deflation(int level) {
+            this.deflater = new Deflater(level, true);
+        }
+
+        private void reset() {
+            deflater.reset();
+            crc.reset();
+        }
+    }
+
+    private final class GzipStream extends OutputStream {
+
+        private final Deflation deflation;
+        private final OutputStream target;
+        private boolean closed;
+
+        private GzipStream(Deflation deflation, OutputStream target) {
+            this.deflation = deflation;
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            deflation.single[0] = (byte) b;
+            write(deflation.single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (length == 0) {
+                return;
+            }
+            deflation.crc.update(bytes, offset, length);
+            Deflater deflater = deflation.deflater;
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            while (drain(Deflater.SYNC_FLUSH) == BUFFER_SIZE) {
+                // the buffer was filled, more may be pending
+            }
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                Deflater deflater = deflation.deflater;
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                byte[] trailer = deflation.buffer;
+                writeIntLE(trailer, 0, (int) deflation.crc.getValue());
+                writeIntLE(trailer, 4, (int) deflater.getBytesRead());
+                target.write(trailer, 0, 8);
+            } finally {
+                pool.release(deflation);
+            }
+        }
+
+        private int drain(int flush) throws IOException {
+            int length = deflation.deflater.deflate(deflation.buffer, 0, BUFFER_SIZE, flush);
+            if (length > 0) {
+                target.write(deflation.buffer, 0, length);
+            }
+            return length;
+        }
+
+        private static void writeIntLE(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) value;
+            bytes[offset + 1] = (byte) (value >>> 8);
+            bytes[offset + 2] = (byte) (value >>> 16);
+            bytes[offset + 3] = (byte) (value >>> 24);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.context;
+
+import dev.nishisan.requests.common.uc.IUserCredential;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Callable;
+
+/**
+ * Request-scoped values (trace ID, request ID and user credential) reachable from anywhere in
+ * the call stack without passing the envelope around.
+ *
+ * A context is bound for the duration of {@link #run(RequestContext, Runnable)} or
+ * {@link #call(RequestContext, ScopedCall)} and read with {@link #current()}. On JDK 25 and
+ * later, where {@code java.lang.ScopedValue} is final, the binding is a scoped value: it costs no
+ * map lookup, cannot leak past the bound scope, and is inherited by {@code StructuredTaskScope}
+ * subtasks for free. Earlier JDKs, where it is a preview API, use a {@link ThreadLocal} that is
+ * restored when the scope ends. Tasks handed to other executors do not inherit either binding; {@link #wrap(Runnable)}
+ * and {@link #wrap(Callable)} carry the current context over.
+ *
+ * When they are created, {@code AbsRequest} takes the trace ID and credential of the current
+ * context, and {@code AbsResponse} its trace ID and, as the source request ID, its request ID.
+ *
+ * @author Lucas Nishimura
+ */
+public final class RequestContext {
+
+    private static final System.Logger LOGGER = System.getLogger(RequestContext.class.getName());
+
+    private static final Binding BINDING = Binding.create();
+
+    private final String traceId;
+    private final String requestId;
+    private volatile IUserCredential<?> credential;
+
+    /**
+     * @param traceId   the trace ID, may be null
+     * @param requestId the request ID, may be null
+     */
+    public RequestContext(String traceId, String requestId) {
+        this(traceId, requestId, null);
+    }
+
+    /**
+     * @param traceId    the trace ID, may be null
+     * @param requestId  the request ID, may be null
+     * @param credential the user credential, may be null
+     */
+    public RequestContext(String traceId, String requestId, IUserCredential<?> credential) {
+        this.traceId = traceId;
+        this.requestId = requestId;
+        this.credential = credential;
+    }
+
+    /**
+     * @return the context bound to the current scope, or null
+     */
+    public static RequestContext current() {
+        return BINDING.get();
+    }
+
+    /**
+     * @return the trace ID of the current context, or null
+     */
+    public static String currentTraceId() {
+        RequestContext context = BINDING.get();
+        return context == null ? null : context.traceId;
+    }
+
+    /**
+     * @return the request ID of the current context, or null
+     */
+    public static String currentRequestId() {
+        RequestContext context = BINDING.get();
+        return context == null ? null : context.requestId;
+    }
+
+    /**
+     * @return the user credential of the current context, or null
+     */
+    public static IUserCredential<?> currentCredential() {
+        RequestContext context = BINDING.get();
+        return context == null ? null : context.credential;
+    }
+
+    /**
+     * Runs an operation with a context bound.
+     *
+     * @param context   the context
+     * @param operation the operation
+     */
+    public static void run(RequestContext context, Runnable operation) {
+        BINDING.run(context, operation);
+    }
+
+    /**
+     * Runs an operation with a context bound and returns its result.
+     *
+     * @param context   the context
+     * @param operation the operation
+     * @param <R>       the result type
+     * @param <X>       the exception thrown by the operation
+     * @return the result of the operation
+     * @throws X what the operation throws
+     */
+    @SuppressWarnings("unchecked")
+    public static <R, X extends Exception> R call(RequestContext context, ScopedCall<R, X> operation) throws X {
+        Object[] outcome = new Object[2];
+        BINDING.run(context, () -> {
+            try {
+                outcome[0] = operation.call();
+            } catch (Exception ex) {
+                outcome[1] = ex;
+            }
+        });
+        if (outcome[1] != null) {
+            throw (X) outcome[1];
+        }
+        return (R) outcome[0];
+    }
+
+    /**
+     * @param task a task to run on another thread
+     * @return the task, running with the context current at the time of this call
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestContext context = current();
+        return context == null ? task : () -> run(context, task);
+    }
+
+    /**
+     * @param task a task to run on another thread
+     * @param <V>  the result type
+     * @return the task, running with the context current at the time of this call
+     */
+    public static <V> Callable<V> wrap(Callable<V> task) {
+        RequestContext context = current();
+        return context == null ? task : () -> call(context, task::call);
+    }
+
+    /**
+     * @return true when contexts are bound with {@code ScopedValue}, false for the
+     * {@link ThreadLocal} fallback
+     */
+    public static boolean isScoped() {
+        return BINDING instanceof ScopedBinding;
+    }
+
+    /**
+     * @return the trace ID
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the request ID
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return the user credential
+     */
+    public IUserCredential<?> getCredential() {
+        return credential;
+    }
+
+    /**
+     * Sets the credential once the caller is authenticated; visible to every scope the context
+     * is bound to.
+     *
+     * @param credential the user credential
+     */
+    public void setCredential(IUserCredential<?> credential) {
+        this.credential = credential;
+    }
+
+    /**
+     * An operation returning a value and throwing a checked exception.
+     *
+     * @param <R> the result type
+     * @param <X> the exception type
+     */
+    @FunctionalInterface
+    public interface ScopedCall<R, X extends Exception> {
+
+        R call() throws X;
+    }
+
+    private abstract static class Binding {
+
+        abstract RequestContext get();
+
+        abstract void run(RequestContext context, Runnable operation);
+
+        static Binding create() {
+            if (Runtime.version().feature() < 25) {
+                return new ThreadLocalBinding();
+            }
+            try {
+                Binding scoped = new ScopedBinding();
+                scoped.run(new RequestContext(null, null), () -> {
+                });
+                return scoped;
+            } catch (Throwable ex) {
+                LOGGER.log(System.Logger.Level.DEBUG, "ScopedValue unavailable, using ThreadLocal request contexts", ex);
+                return new ThreadLocalBinding();
+            }
+        }
+    }
+
+    /**
+     * Binding through {@code java.lang.ScopedValue}, reached with method handles since the library
+     * is compiled for JDK 21, where it is still a preview API; only used on JDK 25 and later.
+     *
+     * The key and handles are static finals, so the JIT treats them as constants and inlines the
+     * calls; this class is only initialized when {@link Binding#create()} picks it.
+     */
+    private static final class ScopedBinding extends Binding {
+
+        private static final Object KEY;
+        private static final MethodHandle WHERE;
+        private static final MethodHandle RUN_WITH;
+        private static final MethodHandle IS_BOUND;
+        private static final MethodHandle GET;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> scopedValue = Class.forName("java.lang.ScopedValue");
+                Class<?> carrier = Class.forName("java.lang.ScopedValue$Carrier");
+                KEY = lookup.findStatic(scopedValue, "newInstance", MethodType.methodType(scopedValue)).invoke();
+                WHERE = lookup.findStatic(scopedValue, "where", MethodType.methodType(carrier, scopedValue, Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+                RUN_WITH = lookup.findVirtual(carrier, "run", MethodType.methodType(void.class, Runnable.class))
+                        .asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+                IS_BOUND = lookup.findVirtual(scopedValue, "isBound", MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class));
+                GET = lookup.findVirtual(scopedValue, "get", MethodType.methodType(Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (Throwable ex) {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+
+        @Override
+        RequestContext get() {
+            try {
+                return (boolean) IS_BOUND.invokeExact(KEY) ? (RequestContext) (Object) GET.invokeExact(KEY) : null;
+            } catch (Throwable ex) {
+                throw sneaky(ex);
+            }
+        }
+
+        @Override
+        void run(RequestContext context, Runnable operation) {
+            try {
+                Object bound = (Object) WHERE.invokeExact(KEY, (Object) context);
+                RUN_WITH.invokeExact(bound, operation);
+            } catch (Throwable ex) {
+                throw sneaky(ex);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <X extends Throwable> X sneaky(Throwable ex) throws X {
+            throw (X) ex;
+        }
+    }
+
+    private static final class ThreadLocalBinding extends Binding {
+
+        private final ThreadLocal<RequestContext> current = new ThreadLocal<>();
+
+        @Override
+        RequestContext get() {
+            return current.get();
+        }
+
+        @Override
+        void run(RequestContext context, Runnable operation) {
+            RequestContext previous = current.get();
+            current.set(context);
+            try {
+                operation.run();
+            } finally {
+                if (previous == null) {
+                    current.remove();
+                } else {
+                    current.set(previous);
+                }
+            }
+        }
+    }
+}
@@ -16,7 +16,16 @@
  */
 package dev.nishisan.requests.common.dto;
 
+import java.util.Objects;
+
 /**
+ * Paging parameters of a request.
+ *
+ * Offset paging uses {@code page} and {@code size}. Keyset paging uses {@code cursor}, an opaque
+ * token issued by {@link dev.nishisan.requests.common.pageable.CursorCodec} in a previous
+ * response, together with {@code size}; {@code page} is then ignored. {@code countTotal} lets a
+ * client skip the total count query when it does not need {@code totalPages}, see
+ * {@link dev.nishisan.requests.common.pageable.PageableConverter#fetch}.
  *
  * @author Lucas Nishimura < lucas at nishisan.dev >
  * @created 25.07.2023
@@ -28,6 +37,8 @@ public class PageableDTO {
     private String sort;
     private String direction;
     private String query;
+    private String cursor;
+    private boolean countTotal = true;
 
     public PageableDTO() {
     }
@@ -127,4 +138,65 @@ public class PageableDTO {
         this.query = query;
     }
 
+    /**
+     * @return the keyset cursor, null for offset paging
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @param cursor the keyset cursor to set
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return whether the total count must be computed, true by default
+     */
+    public boolean isCountTotal() {
+        return countTotal;
+    }
+
+    /**
+     * @param countTotal false to skip the total count query
+     */
+    public void setCountTotal(boolean countTotal) {
+        this.countTotal = countTotal;
+    }
+
+    /**
+     * @return whether the request uses keyset paging
+     */
+    public boolean hasCursor() {
+        return cursor != null && !cursor.isEmpty();
+    }
+
+    /**
+     * Two pageables are equal when every paging parameter is, so identical requests can be
+     * recognized, e.g. to coalesce or cache them.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PageableDTO other)) {
+            return false;
+        }
+        return countTotal == other.countTotal
+                && Objects.equals(page, other.page)
+                && Objects.equals(size, other.size)
+                && Objects.equals(sort, other.sort)
+                && Objects.equals(direction, other.direction)
+                && Objects.equals(query, other.query)
+                && Objects.equals(cursor, other.cursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(page, size, sort, direction, query, cursor, countTotal);
+    }
+
 }
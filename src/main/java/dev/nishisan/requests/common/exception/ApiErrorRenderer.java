@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.exception;
+
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.request.IRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders {@link IBasicException}s as {@link ApiErrorDTO}s.
+ *
+ * How much of the request goes into the error is set by the {@link RequestDetailPolicy}; by
+ * default only its IDs and payload type are, so large request bodies are not echoed back. The
+ * message and details are capped in size: details within the caps are passed through without
+ * being copied, larger ones are copied with long strings cut and extra entries dropped. The
+ * class name is cached per exception class.
+ *
+ * Instances are immutable and thread safe.
+ *
+ * @author Lucas Nishimura
+ */
+public class ApiErrorRenderer {
+
+    /**
+     * How the request of an exception is rendered.
+     */
+    public enum RequestDetailPolicy {
+        /**
+         * The request is left out.
+         */
+        OMIT,
+        /**
+         * Only the request ID, trace ID and payload type are rendered, as a {@link RequestSummary}.
+         */
+        SUMMARIZE,
+        /**
+         * The whole request is rendered, payload included.
+         */
+        INCLUDE
+    }
+
+    /**
+     * Summary of a request rendered with {@link RequestDetailPolicy#SUMMARIZE}.
+     *
+     * @param requestId   the request ID
+     * @param traceId     the trace ID
+     * @param payloadType the simple class name of the payload, or null
+     */
+    public record RequestSummary(String requestId, String traceId, String payloadType) {
+    }
+
+    private static final ClassValue<String> CLASS_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getName();
+        }
+    };
+
+    private static final String TRUNCATED_SUFFIX = "...";
+
+    private final RequestDetailPolicy requestDetailPolicy;
+    private final int maxMessageLength;
+    private final int maxDetails;
+    private final int maxDetailLength;
+
+    /**
+     * Renderer summarizing requests, with messages and detail values of up to 1024 characters
+     * and up to 32 details.
+     */
+    public ApiErrorRenderer() {
+        this(RequestDetailPolicy.SUMMARIZE, 1024, 32, 1024);
+    }
+
+    /**
+     * @param requestDetailPolicy how requests are rendered
+     * @param maxMessageLength    the longest message rendered
+     * @param maxDetails          the most details rendered
+     * @param maxDetailLength     the longest string detail value rendered
+     */
+    public ApiErrorRenderer(RequestDetailPolicy requestDetailPolicy, int maxMessageLength, int maxDetails, int maxDetailLength) {
+        this.requestDetailPolicy = requestDetailPolicy;
+        this.maxMessageLength = maxMessageLength;
+        this.maxDetails = maxDetails;
+        this.maxDetailLength = maxDetailLength;
+    }
+
+    /**
+     * @param exception the exception
+     * @return the error to send
+     */
+    public ApiErrorDTO render(IBasicException exception) {
+        ApiErrorDTO error = new ApiErrorDTO();
+        error.setMsg(truncate(exception.getMessage(), maxMessageLength));
+        error.setStatusCode(statusOf(exception));
+        error.setClassName(CLASS_NAMES.get(exception.getClass()));
+        error.setDetails(capDetails(exception.details()));
+        error.setRequest(renderRequest(exception.getRequest()));
+        return error;
+    }
+
+    /**
+     * @param exception the exception
+     * @return its status code, or 500 when it has none
+     */
+    public static int statusOf(IBasicException exception) {
+        Integer status = exception.getStatusCode();
+        return status == null || status < 100 || status > 599 ? 500 : status;
+    }
+
+    /**
+     * @return the request detail policy
+     */
+    public RequestDetailPolicy getRequestDetailPolicy() {
+        return requestDetailPolicy;
+    }
+
+    private Object renderRequest(IRequest<?> request) {
+        if (request == null) {
+            return null;
+        }
+        return switch (requestDetailPolicy) {
+            case OMIT -> null;
+            case SUMMARIZE -> new RequestSummary(request.getRequestId(),
+                    request instanceof AbsRequest<?> absRequest ? absRequest.getTraceId() : null,
+                    request.getPayload() == null ? null : request.getPayload().getClass().getSimpleName());
+            case INCLUDE -> request;
+        };
+    }
+
+    private Map<String, Object> capDetails(Map<String, Object> details) {
+        if (details == null || details.isEmpty()) {
+            return null;
+        }
+        if (details.size() <= maxDetails && withinLimits(details)) {
+            return details;
+        }
+        Map<String, Object> capped = new LinkedHashMap<>();
+        int kept = 0;
+        for (Map.Entry<String, Object> detail : details.entrySet()) {
+            if (kept == maxDetails) {
+                capped.put("truncatedDetails", details.size() - kept);
+                break;
+            }
+            Object value = detail.getValue();
+            capped.put(detail.getKey(), value instanceof CharSequence text ? truncate(text.toString(), maxDetailLength) : value);
+            kept++;
+        }
+        return capped;
+    }
+
+    private boolean withinLimits(Map<String, Object> details) {
+        for (Object value : details.values()) {
+            if (value instanceof CharSequence text && text.length() > maxDetailLength) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String truncate(String text, int maxLength) {
+        if (text == null || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, Math.max(0, maxLength - TRUNCATED_SUFFIX.length())) + TRUNCATED_SUFFIX;
+    }
+}
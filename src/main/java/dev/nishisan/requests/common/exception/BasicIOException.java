@@ -77,8 +77,13 @@ public abstract class BasicIOException extends IOException implements Serializab
         this.details = details;
     }
 
+    /**
+     * {@link IOException} does not expose the {@code enableSuppression}/{@code writableStackTrace}
+     * constructor of {@link Throwable}, so both flags are ignored: suppression stays enabled and
+     * the stack trace is captured as {@link StackTracePolicy} decides for the class, e.g. skipped
+     * for classes annotated with {@link Stackless}.
+     */
     public BasicIOException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace, IRequest<?> request, Integer statusCode, Map<String, Object> details) {
-
         super(message, cause);
         this.request = request;
         this.statusCode = statusCode;
@@ -121,4 +126,21 @@ public abstract class BasicIOException extends IOException implements Serializab
     public Map<String, Object> details(){
         return  this.details;
     }
-}
\ No newline at end of file
+
+    /**
+     * Skips the stack walk when {@link StackTracePolicy} disables stack traces for this class,
+     * e.g. because it is annotated with {@link Stackless}.
+     *
+     * Unlike {@link BasicException} and {@link BasicRuntimeException}, this class offers no
+     * {@code freeze()}: suppression cannot be disabled on an {@link IOException}, so a shared
+     * instance thrown from try-with-resources blocks would collect the suppressed exceptions of
+     * unrelated requests.
+     */
+    @Override
+    public Throwable fillInStackTrace() {
+        if (StackTracePolicy.isStackTraceWritable(getClass())) {
+            return super.fillInStackTrace();
+        }
+        return this;
+    }
+}
@@ -19,6 +19,7 @@ package dev.nishisan.requests.common.exception;
 import dev.nishisan.requests.common.request.IRequest;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +27,7 @@ public abstract class BasicRuntimeException extends RuntimeException implements
     protected IRequest<?> request;
     protected Integer statusCode = 500;
     private Map<String, Object> details = new HashMap<>();
+    private boolean frozen;
 
 
     public BasicRuntimeException(){
@@ -88,6 +90,7 @@ public abstract class BasicRuntimeException extends RuntimeException implements
     }
 
     public void setRequest(IRequest<?> request) {
+        checkNotFrozen();
         this.request = request;
     }
 
@@ -96,6 +99,7 @@ public abstract class BasicRuntimeException extends RuntimeException implements
     }
 
     public void setStatusCode(Integer statusCode) {
+        checkNotFrozen();
         this.statusCode = statusCode;
     }
 
@@ -111,6 +115,7 @@ public abstract class BasicRuntimeException extends RuntimeException implements
     }
 
     protected void addDetail(String key, Object value) {
+        checkNotFrozen();
         this.details.put(key, value);
     }
 
@@ -119,4 +124,36 @@ public abstract class BasicRuntimeException extends RuntimeException implements
     public Map<String, Object> details(){
         return  this.details;
     }
+
+    /**
+     * Skips the stack walk when {@link StackTracePolicy} disables stack traces for this class,
+     * e.g. because it is annotated with {@link Stackless}.
+     */
+    @Override
+    public Throwable fillInStackTrace() {
+        if (StackTracePolicy.isStackTraceWritable(getClass())) {
+            return super.fillInStackTrace();
+        }
+        return this;
+    }
+
+    /**
+     * Turns this instance into a shared constant, see {@link StackTracePolicy}. Setters and
+     * {@code addDetail} fail afterwards and {@link #details()} becomes read-only.
+     *
+     * @param <T> the concrete exception type
+     * @return this instance
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends BasicRuntimeException> T freeze() {
+        this.details = this.details == null ? Map.of() : Collections.unmodifiableMap(new HashMap<>(this.details));
+        this.frozen = true;
+        return (T) this;
+    }
+
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new IllegalStateException("Shared exception instances are immutable");
+        }
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.exception;
+
+import dev.nishisan.requests.common.request.IRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thrown when a payload violates its {@link dev.nishisan.requests.common.annotations.RequiredField}
+ * constraints. Each violated field is a detail entry, keyed by field name, whose value describes
+ * the violation. Maps to HTTP 400.
+ *
+ * Validation failures are expected outcomes, so no stack trace is captured.
+ *
+ * @author Lucas Nishimura
+ */
+@Stackless
+public class FieldValidationException extends BasicRuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public FieldValidationException(IRequest<?> request, Map<String, Object> violations) {
+        super("Validation failed for " + violations.keySet(), request, 400, new LinkedHashMap<>(violations));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IBasicException> T details(String key, Object value) {
+        addDetail(key, value);
+        return (T) this;
+    }
+}
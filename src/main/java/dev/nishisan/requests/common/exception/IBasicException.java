@@ -16,6 +16,46 @@
  */
 package dev.nishisan.requests.common.exception;
 
+import dev.nishisan.requests.common.request.IRequest;
+
+import java.util.Map;
+
+/**
+ * Common view of {@link BasicException}, {@link BasicRuntimeException} and
+ * {@link BasicIOException}, which extend different JDK exceptions.
+ *
+ * Every method has a default, so exceptions of applications implementing this interface keep
+ * compiling; a {@link Throwable} gets its own {@code getMessage()} anyway.
+ *
+ * @author Lucas Nishimura
+ */
 public interface IBasicException {
 
+    /**
+     * @return the message of the exception
+     */
+    public default String getMessage() {
+        return null;
+    }
+
+    /**
+     * @return the request being handled when the exception was thrown, may be null
+     */
+    public default IRequest<?> getRequest() {
+        return null;
+    }
+
+    /**
+     * @return the HTTP status the exception maps to, may be null
+     */
+    public default Integer getStatusCode() {
+        return null;
+    }
+
+    /**
+     * @return the details of the exception, may be null
+     */
+    public default Map<String, Object> details() {
+        return null;
+    }
 }
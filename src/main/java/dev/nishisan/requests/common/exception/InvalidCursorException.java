@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.exception;
+
+import java.util.HashMap;
+
+/**
+ * Thrown when a pagination cursor cannot be decoded, e.g. because it was tampered with, was
+ * issued with another secret or is truncated. Maps to HTTP 400.
+ *
+ * Bad cursors come from clients, so no stack trace is captured.
+ *
+ * @author Lucas Nishimura
+ */
+@Stackless
+public class InvalidCursorException extends BasicRuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String message) {
+        super(message, null, 400, new HashMap<>());
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause, null, 400, new HashMap<>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IBasicException> T details(String key, Object value) {
+        addDetail(key, value);
+        return (T) this;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.exception;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether the library exceptions capture their stack trace.
+ *
+ * The decision for a class is taken from the nearest class in its hierarchy that either has an
+ * explicit setting ({@link #setStackTraceWritable(Class, boolean)}) or is annotated with
+ * {@link Stackless}; when none has, the global default applies. Decisions are cached per class,
+ * so the check done on every exception construction is a single lookup.
+ *
+ * Settings are meant to be changed during startup, but changing them later is safe: the cache is
+ * simply rebuilt.
+ *
+ * <h2>Shared instances</h2>
+ * {@link BasicException} and {@link BasicRuntimeException} can be turned into immutable
+ * constants with {@code freeze()}, for errors that carry no per-request data. Prefer a new
+ * stackless instance per error, which is already cheap; if you do share one, it is only safe when
+ * built through the constructor that takes {@code enableSuppression} and
+ * {@code writableStackTrace} with {@code false} for both. Otherwise the instance collects the
+ * suppressed exceptions of unrelated requests, or carries the stack trace of whichever thread
+ * created it. A {@link BasicIOException} cannot disable suppression and must never be shared.
+ *
+ * @author Lucas Nishimura
+ */
+public final class StackTracePolicy {
+
+    private static final Map<Class<?>, Boolean> OVERRIDES = new ConcurrentHashMap<>();
+    private static volatile boolean defaultWritable = true;
+    private static volatile ClassValue<Boolean> decisions = newDecisions();
+
+    private StackTracePolicy() {
+    }
+
+    /**
+     * Sets whether exceptions without a more specific setting capture their stack trace.
+     *
+     * @param writable true to capture stack traces (the default)
+     */
+    public static void setDefault(boolean writable) {
+        defaultWritable = writable;
+        decisions = newDecisions();
+    }
+
+    /**
+     * Sets whether the given class and its subclasses capture their stack trace. Overrides the
+     * {@link Stackless} annotation and the global default.
+     *
+     * @param type     the exception class
+     * @param writable true to capture stack traces
+     */
+    public static void setStackTraceWritable(Class<? extends Throwable> type, boolean writable) {
+        OVERRIDES.put(Objects.requireNonNull(type, "type"), writable);
+        decisions = newDecisions();
+    }
+
+    /**
+     * Removes the explicit setting of a class, if any.
+     *
+     * @param type the exception class
+     */
+    public static void clear(Class<? extends Throwable> type) {
+        OVERRIDES.remove(type);
+        decisions = newDecisions();
+    }
+
+    /**
+     * @param type the exception class
+     * @return true when instances of the class should capture their stack trace
+     */
+    public static boolean isStackTraceWritable(Class<?> type) {
+        return decisions.get(type);
+    }
+
+    private static ClassValue<Boolean> newDecisions() {
+        return new ClassValue<>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                for (Class<?> current = type; current != null && current != Throwable.class; current = current.getSuperclass()) {
+                    Boolean override = OVERRIDES.get(current);
+                    if (override != null) {
+                        return override;
+                    }
+                    if (current.getDeclaredAnnotation(Stackless.class) != null) {
+                        return Boolean.FALSE;
+                    }
+                }
+                return defaultWritable;
+            }
+        };
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.headers;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact header container used by the request and response envelopes.
+ *
+ * Most envelopes carry zero to three headers and never leave the thread that builds them, so
+ * names and values are kept side by side in a small flat array and looked up with a linear scan.
+ * Past {@value #FLAT_LIMIT} headers the map moves to a regular hash map. It can optionally match
+ * names case-insensitively, as HTTP does; the first spelling of a name is the one kept.
+ *
+ * Like the {@link ConcurrentHashMap} the envelopes used before, the map rejects null names and
+ * values; unlike it, the map is <b>not</b> thread-safe unless {@link #concurrent()} is called,
+ * which moves it to a concurrent map. Both settings have process-wide defaults, see
+ * {@link #configureDefaults(boolean, boolean)}.
+ *
+ * @author Lucas Nishimura
+ */
+public class HeaderMap extends AbstractMap<String, String> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of headers kept in the flat array before moving to a hash map.
+     */
+    public static final int FLAT_LIMIT = 8;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static volatile boolean defaultCaseInsensitive;
+    private static volatile boolean defaultConcurrent;
+
+    private final boolean caseInsensitive;
+    private String[] entries;
+    private int size;
+    private Map<String, String> delegate;
+    private transient Set<Entry<String, String>> entrySet;
+
+    /**
+     * Creates an empty map with the process-wide defaults.
+     */
+    public HeaderMap() {
+        this(defaultCaseInsensitive);
+        if (defaultConcurrent) {
+            concurrent();
+        }
+    }
+
+    /**
+     * Creates an empty, single-threaded map.
+     *
+     * @param caseInsensitive whether names are matched ignoring case
+     */
+    public HeaderMap(boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    /**
+     * Sets the process-wide defaults of maps created with {@link #HeaderMap()}, which is what
+     * the envelopes use.
+     *
+     * @param caseInsensitive whether names are matched ignoring case
+     * @param concurrent      whether maps start in concurrent mode
+     */
+    public static void configureDefaults(boolean caseInsensitive, boolean concurrent) {
+        defaultCaseInsensitive = caseInsensitive;
+        defaultConcurrent = concurrent;
+    }
+
+    /**
+     * Moves this map to a concurrent map, keeping its content. Must be called before the map is
+     * shared between threads.
+     *
+     * @return this map
+     */
+    public HeaderMap concurrent() {
+        if (delegate instanceof ConcurrentHashMap || delegate instanceof ConcurrentSkipListMap) {
+            return this;
+        }
+        Map<String, String> target = caseInsensitive
+                ? new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER)
+                : new ConcurrentHashMap<>();
+        moveTo(target);
+        return this;
+    }
+
+    /**
+     * @return true when names are matched ignoring case
+     */
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    /**
+     * @return true when the map is in concurrent mode
+     */
+    public boolean isConcurrent() {
+        return delegate instanceof ConcurrentHashMap || delegate instanceof ConcurrentSkipListMap;
+    }
+
+    @Override
+    public int size() {
+        return delegate != null ? delegate.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (delegate != null) {
+            return delegate.containsKey(key);
+        }
+        return key instanceof String name && indexOf(name) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (delegate != null) {
+            return delegate.get(key);
+        }
+        if (key instanceof String name) {
+            int index = indexOf(name);
+            return index < 0 ? null : entries[index + 1];
+        }
+        return null;
+    }
+
+    @Override
+    public String put(String name, String value) {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(value, "value");
+        if (delegate != null) {
+            return delegate.put(name, value);
+        }
+        int index = indexOf(name);
+        if (index >= 0) {
+            String previous = entries[index + 1];
+            entries[index + 1] = value;
+            return previous;
+        }
+        if (size == FLAT_LIMIT) {
+            moveTo(caseInsensitive ? new TreeMap<>(String.CASE_INSENSITIVE_ORDER) : new LinkedHashMap<>());
+            return delegate.put(name, value);
+        }
+        if (entries == null) {
+            entries = new String[INITIAL_CAPACITY * 2];
+        } else if (size * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, FLAT_LIMIT * 2);
+        }
+        entries[size * 2] = name;
+        entries[size * 2 + 1] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (delegate != null) {
+            return delegate.remove(key);
+        }
+        if (key instanceof String name) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                String previous = entries[index + 1];
+                removeAt(index);
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes every header. The flat array is kept, so a cleared map can be refilled without
+     * allocating.
+     */
+    @Override
+    public void clear() {
+        if (delegate != null) {
+            delegate.clear();
+            return;
+        }
+        if (entries != null) {
+            Arrays.fill(entries, 0, size * 2, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Iterates without creating entry objects.
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        if (delegate != null) {
+            delegate.forEach(action);
+            return;
+        }
+        for (int i = 0; i < size * 2; i += 2) {
+            action.accept(entries[i], entries[i + 1]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (delegate != null) {
+            return delegate.entrySet();
+        }
+        Set<Entry<String, String>> set = entrySet;
+        if (set == null) {
+            set = new FlatEntrySet();
+            entrySet = set;
+        }
+        return set;
+    }
+
+    private int indexOf(String name) {
+        String[] current = entries;
+        int limit = size * 2;
+        if (caseInsensitive) {
+            for (int i = 0; i < limit; i += 2) {
+                if (name.equalsIgnoreCase(current[i])) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < limit; i += 2) {
+                if (name.equals(current[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int limit = size * 2;
+        System.arraycopy(entries, index + 2, entries, index, limit - index - 2);
+        entries[limit - 2] = null;
+        entries[limit - 1] = null;
+        size--;
+    }
+
+    private void moveTo(Map<String, String> target) {
+        if (delegate != null) {
+            target.putAll(delegate);
+        } else {
+            for (int i = 0; i < size * 2; i += 2) {
+                target.put(entries[i], entries[i + 1]);
+            }
+        }
+        delegate = target;
+        entries = null;
+        size = 0;
+        entrySet = null;
+    }
+
+    /**
+     * Entry view over the flat array. It reads the current state of the map, so it stays valid
+     * across puts, but not once the map has moved to a delegate.
+     */
+    private final class FlatEntrySet extends AbstractSet<Entry<String, String>> {
+
+        @Override
+        public int size() {
+            return HeaderMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            HeaderMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+            if (delegate != null) {
+                return delegate.entrySet().iterator();
+            }
+            return new FlatIterator();
+        }
+    }
+
+    private final class FlatIterator implements Iterator<Entry<String, String>> {
+
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size * 2;
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            return new FlatEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    /**
+     * Snapshot of a flat entry. {@link #setValue} writes through by name, since removals compact
+     * the array and move the other entries.
+     */
+    private final class FlatEntry extends SimpleEntry<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        FlatEntry(int index) {
+            super(entries[index], entries[index + 1]);
+        }
+
+        @Override
+        public String setValue(String value) {
+            Objects.requireNonNull(value, "value");
+            if (!containsKey(getKey())) {
+                throw new IllegalStateException("Header removed: " + getKey());
+            }
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+import dev.nishisan.requests.common.dto.PageableDTO;
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Direct writers of the envelope metadata, by declaring class and getter name. Each writer is
+ * only looked up for a bean of its declaring class, so the bean is cast without checks.
+ *
+ * Only the fields whose type is fixed (strings, numbers, header maps) are listed; the payload
+ * and other {@code Object} typed fields are left to databind.
+ *
+ * @author Lucas Nishimura
+ */
+final class EnvelopeFields {
+
+    /**
+     * Writes one field of an envelope, name included.
+     */
+    @FunctionalInterface
+    interface FieldWriter {
+
+        /**
+         * @param bean the envelope
+         * @param gen the generator
+         * @param name the pre-encoded field name
+         * @param suppressNulls whether a null value is skipped rather than written
+         */
+        void write(Object bean, JsonGenerator gen, SerializableString name, boolean suppressNulls) throws IOException;
+    }
+
+    private static final Map<Class<?>, Map<String, FieldWriter>> FIELDS = Map.of(
+            AbsResponse.class, Map.of(
+                    "getSourceRequestId", EnvelopeFields.<AbsResponse<?>>string(AbsResponse::getSourceRequestId),
+                    "getResponseId", EnvelopeFields.<AbsResponse<?>>string(AbsResponse::getResponseId),
+                    "getTraceId", EnvelopeFields.<AbsResponse<?>>string(AbsResponse::getTraceId),
+                    "getStatusCode", EnvelopeFields.<AbsResponse<?>>intValue(AbsResponse::getStatusCode),
+                    "getResponseHeaders", EnvelopeFields.<AbsResponse<?>>headers(AbsResponse::hasResponseHeaders, AbsResponse::getResponseHeaders),
+                    "getSize", EnvelopeFields.<AbsResponse<?>>longValue(AbsResponse::getSize),
+                    "getTotalPages", EnvelopeFields.<AbsResponse<?>>longValue(AbsResponse::getTotalPages),
+                    "getNextCursor", EnvelopeFields.<AbsResponse<?>>string(AbsResponse::getNextCursor),
+                    "getPrevCursor", EnvelopeFields.<AbsResponse<?>>string(AbsResponse::getPrevCursor)),
+            AbsRequest.class, Map.of(
+                    "getRequestId", EnvelopeFields.<AbsRequest<?>>string(AbsRequest::getRequestId),
+                    "getTraceId", EnvelopeFields.<AbsRequest<?>>string(AbsRequest::getTraceId),
+                    "getRequestHeaders", EnvelopeFields.<AbsRequest<?>>headers(AbsRequest::hasRequestHeaders, AbsRequest::getRequestHeaders)),
+            PageableDTO.class, Map.of(
+                    "getPage", integer(PageableDTO::getPage),
+                    "getSize", integer(PageableDTO::getSize),
+                    "getSort", string(PageableDTO::getSort),
+                    "getDirection", string(PageableDTO::getDirection),
+                    "getQuery", string(PageableDTO::getQuery),
+                    "getCursor", string(PageableDTO::getCursor),
+                    "isCountTotal", bool(PageableDTO::isCountTotal)),
+            ApiErrorDTO.class, Map.of(
+                    "getMsg", string(ApiErrorDTO::getMsg),
+                    "getStatusCode", integer(ApiErrorDTO::getStatusCode),
+                    "getClassName", string(ApiErrorDTO::getClassName)));
+
+    private EnvelopeFields() {
+    }
+
+    /**
+     * @param type a bean class
+     * @return whether the class is an envelope with fields listed here
+     */
+    static boolean isEnvelope(Class<?> type) {
+        return (AbsResponse.class.isAssignableFrom(type) && !StreamingResponse.class.isAssignableFrom(type))
+                || AbsRequest.class.isAssignableFrom(type)
+                || PageableDTO.class.isAssignableFrom(type)
+                || ApiErrorDTO.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @param declaringClass the class declaring the getter
+     * @param getter the name of the getter
+     * @return the direct writer of the field, or null when it is left to databind
+     */
+    static FieldWriter find(Class<?> declaringClass, String getter) {
+        Map<String, FieldWriter> fields = FIELDS.get(declaringClass);
+        return fields == null ? null : fields.get(getter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> FieldWriter string(Function<T, String> getter) {
+        return (bean, gen, name, suppressNulls) -> {
+            String value = getter.apply((T) bean);
+            if (value != null) {
+                gen.writeFieldName(name);
+                gen.writeString(value);
+            } else if (!suppressNulls) {
+                gen.writeFieldName(name);
+                gen.writeNull();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> FieldWriter integer(Function<T, Integer> getter) {
+        return (bean, gen, name, suppressNulls) -> {
+            Integer value = getter.apply((T) bean);
+            if (value != null) {
+                gen.writeFieldName(name);
+                gen.writeNumber(value);
+            } else if (!suppressNulls) {
+                gen.writeFieldName(name);
+                gen.writeNull();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> FieldWriter intValue(ToIntFunction<T> getter) {
+        return (bean, gen, name, suppressNulls) -> {
+            gen.writeFieldName(name);
+            gen.writeNumber(getter.applyAsInt((T) bean));
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> FieldWriter longValue(ToLongFunction<T> getter) {
+        return (bean, gen, name, suppressNulls) -> {
+            gen.writeFieldName(name);
+            gen.writeNumber(getter.applyAsLong((T) bean));
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> FieldWriter bool(Predicate<T> getter) {
+        return (bean, gen, name, suppressNulls) -> {
+            gen.writeFieldName(name);
+            gen.writeBoolean(getter.test((T) bean));
+        };
+    }
+
+    /**
+     * Writes a header map, as an empty object when there are no headers: the getter would
+     * create the map just to have it written empty.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> FieldWriter headers(Predicate<T> hasHeaders, Function<T, Map<String, String>> getter) {
+        return (bean, gen, name, suppressNulls) -> {
+            gen.writeFieldName(name);
+            gen.writeStartObject();
+            if (hasHeaders.test((T) bean)) {
+                for (Map.Entry<String, String> header : getter.apply((T) bean).entrySet()) {
+                    gen.writeFieldName(header.getKey());
+                    gen.writeString(header.getValue());
+                }
+            }
+            gen.writeEndObject();
+        };
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.jackson;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+
+/**
+ * Jackson module serializing the envelopes ({@code AbsResponse}, {@code AbsRequest},
+ * {@code PageableDTO}, {@code ApiErrorDTO} and their subclasses) without going through their
+ * getters by reflection.
+ *
+ * The metadata fields are written by direct calls, under field names encoded once, and the
+ * payload is handed to databind as before, so the JSON is the same as without the module. An
+ * envelope without headers is written without creating its header map. Envelope classes with
+ * object identities, filters or any-getters keep the regular bean serializer.
+ *
+ * <pre>{@code
+ * ObjectMapper mapper = new ObjectMapper().registerModule(new EnvelopeModule());
+ * }</pre>
+ *
+ * @author Lucas Nishimura
+ */
+public class EnvelopeModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public EnvelopeModule() {
+        super(EnvelopeModule.class.getSimpleName());
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.addBeanSerializerModifier(new EnvelopeSerializerModifier());
+    }
+
+    /**
+     * Swaps the bean serializer of plain envelope classes for an {@link EnvelopeSerializer}.
+     */
+    private static final class EnvelopeSerializerModifier extends BeanSerializerModifier {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            if (serializer.getClass() == BeanSerializer.class
+                    && EnvelopeFields.isEnvelope(beanDesc.getBeanClass())
+                    && beanDesc.getObjectIdInfo() == null
+                    && beanDesc.findAnyGetter() == null
+                    && config.getAnnotationIntrospector().findFilterId(beanDesc.getClassInfo()) == null) {
+                return new EnvelopeSerializer((BeanSerializerBase) serializer);
+            }
+            return serializer;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.jackson;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.RawJson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Serializer of an envelope class that writes the metadata fields listed in
+ * {@link EnvelopeFields} directly, under the pre-encoded names of the bean properties, and the
+ * remaining properties (the payload, fields added by subclasses) through their databind
+ * writers, in the order of the bean serializer it replaces.
+ *
+ * A field is only written directly when nothing customizes it: not overridden, no
+ * {@code @JsonSerialize}, {@code @JsonFormat}, {@code @JsonRawValue} or view, and an inclusion
+ * rule of at most {@code NON_NULL}. Under the same conditions, the payload of an
+ * {@link AbsResponse} with a serialized payload attached is written from those bytes when the
+ * output is JSON. Active views, polymorphic typing and unwrapping fall back
+ * to the bean serializer, as do contextual variants of it.
+ *
+ * @author Lucas Nishimura
+ */
+final class EnvelopeSerializer extends StdSerializer<Object> implements ResolvableSerializer, ContextualSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final BeanSerializerBase beanSerializer;
+    private transient Slot[] slots;
+
+    EnvelopeSerializer(BeanSerializerBase beanSerializer) {
+        super(beanSerializer.handledType(), false);
+        this.beanSerializer = beanSerializer;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        beanSerializer.resolve(provider);
+        List<Slot> resolved = new ArrayList<>();
+        Iterator<PropertyWriter> properties = beanSerializer.properties();
+        while (properties.hasNext()) {
+            if (!(properties.next() instanceof BeanPropertyWriter property)) {
+                return;
+            }
+            boolean plain = isPlain(provider, property);
+            resolved.add(new Slot(property.getSerializedName(), plain ? EnvelopeFields.find(property.getMember().getDeclaringClass(),
+                    property.getMember().getName()) : null, plain && isPayload(property), property.willSuppressNulls(), property));
+        }
+        slots = resolved.toArray(new Slot[0]);
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        JsonSerializer<?> contextual = beanSerializer.createContextual(provider, property);
+        return contextual == beanSerializer ? this : contextual;
+    }
+
+    @Override
+    public void serialize(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        Slot[] slots = this.slots;
+        if (slots == null || provider.getActiveView() != null) {
+            beanSerializer.serialize(bean, gen, provider);
+            return;
+        }
+        gen.writeStartObject(bean);
+        Slot slot = null;
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                slot = slots[i];
+                RawJson raw;
+                if (slot.direct != null) {
+                    slot.direct.write(bean, gen, slot.name, slot.suppressNulls);
+                } else if (slot.payload && (raw = ((AbsResponse<?>) bean).serializedPayload()) != null
+                        && gen instanceof JsonGeneratorImpl) {
+                    gen.writeFieldName(slot.name);
+                    raw.serialize(gen, provider);
+                } else {
+                    slot.property.serializeAsField(bean, gen, provider);
+                }
+            }
+        } catch (Exception ex) {
+            wrapAndThrow(provider, ex, bean, slot == null ? "[anySetter]" : slot.property.getName());
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(Object bean, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+        beanSerializer.serializeWithType(bean, gen, provider, typeSerializer);
+    }
+
+    @Override
+    public JsonSerializer<Object> unwrappingSerializer(NameTransformer unwrapper) {
+        return beanSerializer.unwrappingSerializer(unwrapper);
+    }
+
+    @Override
+    public boolean usesObjectId() {
+        return beanSerializer.usesObjectId();
+    }
+
+    @Override
+    public Iterator<PropertyWriter> properties() {
+        return beanSerializer.properties();
+    }
+
+    private boolean isPlain(SerializerProvider provider, BeanPropertyWriter property) {
+        AnnotatedMember member = property.getMember();
+        if (!(member instanceof AnnotatedMethod) || property.getViews() != null || property.getTypeSerializer() != null
+                || property.getAnnotation(JsonSerialize.class) != null || property.getAnnotation(JsonFormat.class) != null
+                || property.getAnnotation(JsonRawValue.class) != null) {
+            return false;
+        }
+        JsonInclude.Include inclusion = property.findPropertyInclusion(provider.getConfig(), handledType()).getValueInclusion();
+        return inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS
+                || inclusion == JsonInclude.Include.NON_NULL || inclusion == JsonInclude.Include.NON_ABSENT;
+    }
+
+    private static boolean isPayload(BeanPropertyWriter property) {
+        AnnotatedMember member = property.getMember();
+        return member.getDeclaringClass() == AbsResponse.class && "getPayload".equals(member.getName());
+    }
+
+    private record Slot(SerializableString name, EnvelopeFields.FieldWriter direct, boolean payload, boolean suppressNulls,
+            BeanPropertyWriter property) {
+    }
+}
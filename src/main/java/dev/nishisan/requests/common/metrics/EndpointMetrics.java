@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.metrics;
+
+/**
+ * Records the outcome of each handled request, per endpoint.
+ *
+ * Implementations are called on the request thread for every request, so they must be lock
+ * free and avoid allocating on the recording path.
+ *
+ * @author Lucas Nishimura
+ */
+public interface EndpointMetrics {
+
+    /**
+     * Records one request.
+     *
+     * @param endpoint      the endpoint name, e.g. {@code ProductController#list}
+     * @param status        the HTTP status of the response
+     * @param exception     the class of the exception the request ended with, or null
+     * @param durationNanos the time taken, in nanoseconds
+     */
+    void record(String endpoint, int status, Class<? extends Throwable> exception, long durationNanos);
+}
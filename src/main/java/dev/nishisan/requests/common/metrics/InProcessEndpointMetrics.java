@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link EndpointMetrics} kept in memory, for applications without Micrometer.
+ *
+ * Each endpoint has a {@link LatencyHistogram}, a counter per status code and a counter per
+ * exception class. Counters are {@link LongAdder}s created on first use, so concurrent requests
+ * are striped over their cells instead of contending on one word. After the first request of an
+ * endpoint with a given status, recording only reads arrays and maps and increments counters.
+ *
+ * @author Lucas Nishimura
+ */
+public class InProcessEndpointMetrics implements EndpointMetrics {
+
+    private final Map<String, Stats> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(String endpoint, int status, Class<? extends Throwable> exception, long durationNanos) {
+        Stats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = endpoints.computeIfAbsent(endpoint, k -> new Stats());
+        }
+        stats.latency.record(durationNanos);
+        stats.status(status >= 100 && status < 600 ? status - 100 : 0).increment();
+        if (exception != null) {
+            LongAdder counter = stats.exceptions.get(exception);
+            if (counter == null) {
+                counter = stats.exceptions.computeIfAbsent(exception, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * @param endpoint an endpoint name
+     * @return its statistics, or null if it has not been called
+     */
+    public Stats get(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * @return the statistics of every endpoint called so far, by endpoint name
+     */
+    public Map<String, Stats> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    /**
+     * Statistics of one endpoint.
+     */
+    public static class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(500);
+        private final Map<Class<? extends Throwable>, LongAdder> exceptions = new ConcurrentHashMap<>();
+
+        private LongAdder status(int index) {
+            LongAdder counter = statuses.get(index);
+            if (counter == null) {
+                LongAdder created = new LongAdder();
+                counter = statuses.compareAndExchange(index, null, created);
+                if (counter == null) {
+                    counter = created;
+                }
+            }
+            return counter;
+        }
+
+        /**
+         * @return the latency histogram
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @param status an HTTP status code
+         * @return the number of responses with that status
+         */
+        public long getStatusCount(int status) {
+            LongAdder counter = status >= 100 && status < 600 ? statuses.get(status - 100) : null;
+            return counter == null ? 0 : counter.sum();
+        }
+
+        /**
+         * @return the number of responses by status code, for the codes seen so far
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            for (int i = 0; i < statuses.length(); i++) {
+                LongAdder counter = statuses.get(i);
+                if (counter != null) {
+                    counts.put(i + 100, counter.sum());
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * @return the number of requests by exception class
+         */
+        public Map<Class<? extends Throwable>, Long> getExceptionCounts() {
+            Map<Class<? extends Throwable>, Long> counts = new HashMap<>();
+            exceptions.forEach((type, counter) -> counts.put(type, counter.sum()));
+            return counts;
+        }
+    }
+}
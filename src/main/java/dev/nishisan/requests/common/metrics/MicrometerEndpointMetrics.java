@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EndpointMetrics} published to a Micrometer {@link MeterRegistry}.
+ *
+ * Every request is recorded in a {@value #METER_NAME} timer tagged with {@code endpoint},
+ * {@code status} and {@code exception} ({@code none} when the request did not fail), so status
+ * and exception counts are the counts of the matching timers. Timers are resolved once per tag
+ * combination and cached, which keeps the registry lookup off the recording path.
+ *
+ * @author Lucas Nishimura
+ */
+public class MicrometerEndpointMetrics implements EndpointMetrics {
+
+    /**
+     * Name of the timer.
+     */
+    public static final String METER_NAME = "nishi.requests";
+
+    private final MeterRegistry registry;
+    private final boolean percentileHistogram;
+    private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry            the registry
+     * @param percentileHistogram whether the timers publish histogram buckets, for percentiles
+     *                            aggregated by the monitoring system
+     */
+    public MicrometerEndpointMetrics(MeterRegistry registry, boolean percentileHistogram) {
+        this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(String endpoint, int status, Class<? extends Throwable> exception, long durationNanos) {
+        Key key = new Key(endpoint, status, exception);
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, this::register);
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(Key key) {
+        return Timer.builder(METER_NAME)
+                .description("Requests handled, by endpoint, status and exception")
+                .tag("endpoint", key.endpoint())
+                .tag("status", Integer.toString(key.status()))
+                .tag("exception", key.exception() == null ? "none" : key.exception().getSimpleName())
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry);
+    }
+
+    private record Key(String endpoint, int status, Class<? extends Throwable> exception) {
+    }
+}
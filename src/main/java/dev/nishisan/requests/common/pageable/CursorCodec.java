@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pageable;
+
+import dev.nishisan.requests.common.exception.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes {@link PageCursor}s into opaque, URL-safe tokens and back.
+ *
+ * A token is the base64url binary encoding of the cursor followed by a truncated HMAC-SHA256
+ * of it, so clients cannot forge positions or inject values into the keyset query. Tokens only
+ * decode with the secret they were issued with: every instance of a service must share it, and
+ * rotating it invalidates the cursors held by clients.
+ *
+ * The signature also covers a scope, built with {@link #scope(String, Sort)} from the endpoint
+ * and the sort the cursor was issued for, and a token only decodes within the same scope: a
+ * cursor cannot be replayed against another endpoint or another sort order, where its keys
+ * would mean something else.
+ *
+ * Instances are thread safe.
+ *
+ * @author Lucas Nishimura
+ */
+public class CursorCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 2;
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final int MAX_TOKEN_LENGTH = 4096;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte UUID_TYPE = 6;
+    private static final byte INSTANT = 7;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac prototype;
+
+    /**
+     * @param secret the HMAC key, at least 16 bytes
+     */
+    public CursorCodec(byte[] secret) {
+        if (secret == null || secret.length < 16) {
+            throw new IllegalArgumentException("The cursor secret must have at least 16 bytes");
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(secret, ALGORITHM));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC not available", ex);
+        }
+    }
+
+    /**
+     * Creates a codec with a random secret. Its tokens only decode in the same process, which
+     * suits single instance deployments and tests.
+     *
+     * @return a new codec
+     */
+    public static CursorCodec withRandomSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return new CursorCodec(secret);
+    }
+
+    /**
+     * Builds the scope of the cursors of an endpoint for a sort.
+     *
+     * @param endpoint identifies the endpoint, e.g. {@code "products#list"}
+     * @param sort     the sort of the query, as given to the repository
+     * @return the scope
+     */
+    public static String scope(String endpoint, Sort sort) {
+        return endpoint + "|" + (sort == null ? Sort.unsorted() : sort);
+    }
+
+    /**
+     * @param cursor the cursor to encode
+     * @param scope  the scope of the cursor, see {@link #scope(String, Sort)}
+     * @return the opaque token
+     */
+    public String encode(PageCursor cursor, String scope) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(VERSION);
+            out.writeBoolean(cursor.forward());
+            out.writeShort(cursor.keys().size());
+            for (Map.Entry<String, Object> key : cursor.keys().entrySet()) {
+                out.writeUTF(key.getKey());
+                writeValue(out, key.getKey(), key.getValue());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        byte[] body = buffer.toByteArray();
+        byte[] token = Arrays.copyOf(body, body.length + SIGNATURE_LENGTH);
+        System.arraycopy(sign(scope, body), 0, token, body.length, SIGNATURE_LENGTH);
+        return ENCODER.encodeToString(token);
+    }
+
+    /**
+     * @param token a token issued by {@link #encode(PageCursor, String)}
+     * @param scope the scope the token must have been issued for
+     * @return the cursor
+     * @throws InvalidCursorException if the token is malformed or its signature does not match,
+     *                                e.g. because it was issued for another scope
+     */
+    public PageCursor decode(String token, String scope) {
+        if (token == null || token.isEmpty() || token.length() > MAX_TOKEN_LENGTH) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        byte[] raw;
+        try {
+            raw = DECODER.decode(token);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid cursor", ex);
+        }
+        if (raw.length <= SIGNATURE_LENGTH) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        byte[] body = Arrays.copyOf(raw, raw.length - SIGNATURE_LENGTH);
+        byte[] signature = Arrays.copyOfRange(raw, body.length, raw.length);
+        if (!MessageDigest.isEqual(signature, Arrays.copyOf(sign(scope, body), SIGNATURE_LENGTH))) {
+            throw new InvalidCursorException("Invalid cursor signature");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            if (in.readByte() != VERSION) {
+                throw new InvalidCursorException("Unsupported cursor version");
+            }
+            boolean forward = in.readBoolean();
+            int count = in.readUnsignedShort();
+            Map<String, Object> keys = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                keys.put(name, readValue(in));
+            }
+            return new PageCursor(forward, keys);
+        } catch (IOException ex) {
+            throw new InvalidCursorException("Invalid cursor", ex);
+        }
+    }
+
+    /**
+     * @param token a token issued by {@link #encode(PageCursor, String)}, or null for the first
+     *              page
+     * @param scope the scope the token must have been issued for
+     * @return the Spring Data position to scroll from
+     */
+    public KeysetScrollPosition decodeScrollPosition(String token, String scope) {
+        if (token == null || token.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        return decode(token, scope).toScrollPosition();
+    }
+
+    /**
+     * @param window a window returned by a keyset {@code scroll} query
+     * @param scope  the scope of the query, see {@link #scope(String, Sort)}
+     * @return the token of the page after the window, or null if it is the last one
+     */
+    public String nextCursor(Window<?> window, String scope) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+        return encodeAt(window, window.size() - 1, true, scope);
+    }
+
+    /**
+     * @param window a window returned by a keyset {@code scroll} query
+     * @param scope  the scope of the query, see {@link #scope(String, Sort)}
+     * @return the token of the page before the window, or null if the window is empty
+     */
+    public String prevCursor(Window<?> window, String scope) {
+        if (window.isEmpty()) {
+            return null;
+        }
+        return encodeAt(window, 0, false, scope);
+    }
+
+    private String encodeAt(Window<?> window, int index, boolean forward, String scope) {
+        if (!(window.positionAt(index) instanceof KeysetScrollPosition position)) {
+            throw new IllegalArgumentException("Cursors require a keyset window");
+        }
+        return encode(new PageCursor(forward, new LinkedHashMap<>(position.getKeys())), scope);
+    }
+
+    /**
+     * Signs the scope, prefixed with its length so it cannot run into the body, then the body.
+     */
+    private byte[] sign(String scope, byte[] body) {
+        byte[] scopeBytes = scope == null ? new byte[0] : scope.getBytes(StandardCharsets.UTF_8);
+        try {
+            Mac mac = (Mac) prototype.clone();
+            mac.update((byte) (scopeBytes.length >>> 24));
+            mac.update((byte) (scopeBytes.length >>> 16));
+            mac.update((byte) (scopeBytes.length >>> 8));
+            mac.update((byte) scopeBytes.length);
+            mac.update(scopeBytes);
+            return mac.doFinal(body);
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, String name, Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(NULL);
+            case String s -> {
+                out.writeByte(STRING);
+                out.writeUTF(s);
+            }
+            case Integer i -> {
+                out.writeByte(INTEGER);
+                out.writeInt(i);
+            }
+            case Long l -> {
+                out.writeByte(LONG);
+                out.writeLong(l);
+            }
+            case Double d -> {
+                out.writeByte(DOUBLE);
+                out.writeDouble(d);
+            }
+            case Boolean b -> {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(b);
+            }
+            case UUID u -> {
+                out.writeByte(UUID_TYPE);
+                out.writeLong(u.getMostSignificantBits());
+                out.writeLong(u.getLeastSignificantBits());
+            }
+            case Instant t -> {
+                out.writeByte(INSTANT);
+                out.writeLong(t.getEpochSecond());
+                out.writeInt(t.getNano());
+            }
+            default -> throw new IllegalArgumentException(
+                    "Unsupported cursor key type for " + name + ": " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case NULL -> null;
+            case STRING -> in.readUTF();
+            case INTEGER -> in.readInt();
+            case LONG -> in.readLong();
+            case DOUBLE -> in.readDouble();
+            case BOOLEAN -> in.readBoolean();
+            case UUID_TYPE -> new UUID(in.readLong(), in.readLong());
+            case INSTANT -> Instant.ofEpochSecond(in.readLong(), in.readInt());
+            default -> throw new InvalidCursorException("Invalid cursor key type");
+        };
+    }
+}
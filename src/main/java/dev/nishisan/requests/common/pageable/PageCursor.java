@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pageable;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded keyset pagination cursor: the sort key values of the row the next page starts after
+ * (or, when scrolling backward, before).
+ *
+ * Keys keep their order, which must match the sort order of the query. Supported values are
+ * {@code null}, {@link String}, {@link Integer}, {@link Long}, {@link Double}, {@link Boolean},
+ * {@link java.util.UUID} and {@link java.time.Instant}.
+ *
+ * @param forward whether the cursor scrolls forward
+ * @param keys    the sort key values, by property name
+ * @author Lucas Nishimura
+ */
+public record PageCursor(boolean forward, Map<String, Object> keys) {
+
+    public PageCursor {
+        keys = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+    }
+
+    /**
+     * @param keys the sort key values of the last row of the current page
+     * @return a cursor for the rows after it
+     */
+    public static PageCursor after(Map<String, ?> keys) {
+        return new PageCursor(true, new LinkedHashMap<>(keys));
+    }
+
+    /**
+     * @param keys the sort key values of the first row of the current page
+     * @return a cursor for the rows before it
+     */
+    public static PageCursor before(Map<String, ?> keys) {
+        return new PageCursor(false, new LinkedHashMap<>(keys));
+    }
+
+    /**
+     * @param position a Spring Data keyset position
+     * @return the equivalent cursor
+     */
+    public static PageCursor of(KeysetScrollPosition position) {
+        return new PageCursor(position.scrollsForward(), new LinkedHashMap<>(position.getKeys()));
+    }
+
+    /**
+     * @return the equivalent Spring Data position, to be given to a repository {@code scroll} query
+     */
+    public KeysetScrollPosition toScrollPosition() {
+        return forward ? ScrollPosition.forward(keys) : ScrollPosition.backward(keys);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pageable;
+
+import dev.nishisan.requests.common.dto.PageableDTO;
+import dev.nishisan.requests.common.exception.InvalidPageRequestException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Converts a {@link PageableDTO} into a Spring Data {@link Pageable}, for one endpoint.
+ *
+ * {@code sort} is a comma separated list of properties, each optionally prefixed with
+ * {@code -} (descending) or {@code +} (ascending); properties without a prefix use
+ * {@code direction} ({@code ASC} or {@code DESC}, ascending when absent). Only the properties
+ * given to the constructor, typically the indexed ones, are accepted: anything else is rejected
+ * with an {@link InvalidPageRequestException} instead of reaching the database.
+ *
+ * Parsed {@link Sort}s are cached per {@code sort}/{@code direction} pair, so the strings are
+ * only parsed the first time a combination is seen. Since only whitelisted properties get
+ * there, the cache stays small; it stops growing past {@link #MAX_CACHED_SORTS} entries anyway.
+ *
+ * {@link #fetch} honors {@code countTotal}: it runs the {@link Page} query, and its count query,
+ * only when the client asked for the total.
+ *
+ * The page size is clamped to the maximum size. Instances are thread safe and meant to be kept
+ * in a static or bean field.
+ *
+ * @author Lucas Nishimura
+ */
+public class PageableConverter {
+
+    /**
+     * Maximum number of cached sorts per converter.
+     */
+    public static final int MAX_CACHED_SORTS = 256;
+
+    private static volatile int defaultMaxSize = 100;
+
+    private final Set<String> sortableProperties;
+    private final Sort defaultSort;
+    private final int maxSize;
+    private final Map<SortKey, Sort> sorts = new ConcurrentHashMap<>();
+
+    /**
+     * Converter using the default maximum size and no default sort.
+     *
+     * @param sortableProperties the properties clients may sort by
+     */
+    public PageableConverter(Collection<String> sortableProperties) {
+        this(sortableProperties, Sort.unsorted(), 0);
+    }
+
+    /**
+     * @param sortableProperties the properties clients may sort by
+     * @param defaultSort        the sort used when the request has none
+     * @param maxSize            the maximum page size; 0 uses {@link #getDefaultMaxSize()}
+     */
+    public PageableConverter(Collection<String> sortableProperties, Sort defaultSort, int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.sortableProperties = Set.copyOf(sortableProperties);
+        this.defaultSort = defaultSort == null ? Sort.unsorted() : defaultSort;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets the maximum page size of the converters created without one.
+     *
+     * @param maxSize the maximum page size
+     */
+    public static void setDefaultMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        defaultMaxSize = maxSize;
+    }
+
+    /**
+     * @return the maximum page size of the converters created without one
+     */
+    public static int getDefaultMaxSize() {
+        return defaultMaxSize;
+    }
+
+    /**
+     * @param dto the paging parameters of the request
+     * @return the pageable, with the size clamped to the maximum size
+     * @throws InvalidPageRequestException if the page or size is negative, or the sort is not
+     *                                     allowed
+     */
+    public Pageable toPageable(PageableDTO dto) {
+        int page = dto.getPage() == null ? 0 : dto.getPage();
+        if (page < 0) {
+            throw new InvalidPageRequestException("page must not be negative").<InvalidPageRequestException>details("page", page);
+        }
+        int size = dto.getSize() == null ? getMaxSize() : dto.getSize();
+        if (size < 1) {
+            throw new InvalidPageRequestException("size must be positive").<InvalidPageRequestException>details("size", size);
+        }
+        return PageRequest.of(page, Math.min(size, getMaxSize()), toSort(dto.getSort(), dto.getDirection()));
+    }
+
+    /**
+     * Runs the query of a request, counting the total only when the request asks for it
+     * ({@code countTotal}, true by default). A response built from the result gets its
+     * {@code size} either way, and its {@code totalPages} only from a {@link Page}.
+     *
+     * @param dto        the paging parameters of the request
+     * @param pageQuery  runs the query with its count, e.g. {@code repository::findAll}
+     * @param sliceQuery runs the query without count, e.g. a repository method returning a
+     *                   {@link Slice}
+     * @param <T>        the type of the rows
+     * @return the page, or a slice when the count was skipped
+     * @throws InvalidPageRequestException see {@link #toPageable(PageableDTO)}
+     */
+    public <T> Slice<T> fetch(PageableDTO dto, Function<Pageable, ? extends Page<T>> pageQuery,
+                              Function<Pageable, ? extends Slice<T>> sliceQuery) {
+        Pageable pageable = toPageable(dto);
+        return dto.isCountTotal() ? pageQuery.apply(pageable) : sliceQuery.apply(pageable);
+    }
+
+    /**
+     * @param sort      the sort expression
+     * @param direction the default direction of the sort expression
+     * @return the sort, or the default sort when the expression is empty
+     * @throws InvalidPageRequestException if the sort is not allowed
+     */
+    public Sort toSort(String sort, String direction) {
+        if (sort == null || sort.isBlank()) {
+            return defaultSort;
+        }
+        SortKey key = new SortKey(sort, direction);
+        Sort cached = sorts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Sort parsed = parse(sort, direction);
+        if (sorts.size() < MAX_CACHED_SORTS) {
+            sorts.putIfAbsent(key, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * @return the maximum page size of this converter
+     */
+    public int getMaxSize() {
+        return maxSize == 0 ? defaultMaxSize : maxSize;
+    }
+
+    /**
+     * @return the properties clients may sort by
+     */
+    public Set<String> getSortableProperties() {
+        return sortableProperties;
+    }
+
+    private Sort parse(String sort, String direction) {
+        Sort.Direction defaultDirection = parseDirection(direction);
+        List<Sort.Order> orders = new ArrayList<>(2);
+        for (String token : sort.split(",")) {
+            String property = token.strip();
+            if (property.isEmpty()) {
+                continue;
+            }
+            Sort.Direction orderDirection = defaultDirection;
+            if (property.charAt(0) == '-') {
+                orderDirection = Sort.Direction.DESC;
+                property = property.substring(1).strip();
+            } else if (property.charAt(0) == '+') {
+                orderDirection = Sort.Direction.ASC;
+                property = property.substring(1).strip();
+            }
+            if (!sortableProperties.contains(property)) {
+                throw new InvalidPageRequestException("Sorting by " + property + " is not allowed")
+                        .<InvalidPageRequestException>details("sort", property)
+                        .<InvalidPageRequestException>details("allowed", sortableProperties);
+            }
+            orders.add(new Sort.Order(orderDirection, property));
+        }
+        return orders.isEmpty() ? defaultSort : Sort.by(orders);
+    }
+
+    private static Sort.Direction parseDirection(String direction) {
+        if (direction == null || direction.isBlank()) {
+            return Sort.Direction.ASC;
+        }
+        return switch (direction.strip().toUpperCase(Locale.ROOT)) {
+            case "ASC" -> Sort.Direction.ASC;
+            case "DESC" -> Sort.Direction.DESC;
+            default -> throw new InvalidPageRequestException("Invalid sort direction " + direction)
+                    .<InvalidPageRequestException>details("direction", direction);
+        };
+    }
+
+    private record SortKey(String sort, String direction) {
+    }
+}
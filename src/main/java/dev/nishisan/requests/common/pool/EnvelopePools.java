@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pool;
+
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of {@link StripedPool}s for envelope classes.
+ *
+ * Envelopes of a registered class can be handed back with {@link #release(Object)} without the
+ * caller knowing which pool they came from. Pools are looked up by the exact runtime class of the
+ * envelope. Without leak detection any instance of a pooled class is accepted, including one
+ * created with {@code new}, which simply joins the pool. With leak detection only envelopes
+ * acquired from the pool and not yet released are, as {@link StripedPool#release(Object)} fails
+ * for any other.
+ *
+ * The Spring integration recycles the {@code AbsResponse} of a request once its body has been
+ * written through {@link #recycle(Object)}, which never fails: with leak detection, envelopes
+ * the pool did not lease (e.g. the copies built by {@code RequestCoalescer} or
+ * {@code ResponseCache}) are left to the GC.
+ *
+ * @author Lucas Nishimura
+ */
+public class EnvelopePools {
+
+    private final Map<Class<?>, StripedPool<?>> pools = new ConcurrentHashMap<>();
+    private final int stripes;
+    private final int slotsPerStripe;
+    private final boolean leakDetection;
+
+    /**
+     * Creates a registry with the default pool sizing and no leak detection.
+     */
+    public EnvelopePools() {
+        this(0, StripedPool.DEFAULT_SLOTS_PER_STRIPE, false);
+    }
+
+    /**
+     * Creates a registry whose pools share the given settings.
+     *
+     * @param stripes        see {@link StripedPool}
+     * @param slotsPerStripe see {@link StripedPool}
+     * @param leakDetection  see {@link StripedPool}
+     */
+    public EnvelopePools(int stripes, int slotsPerStripe, boolean leakDetection) {
+        this.stripes = stripes;
+        this.slotsPerStripe = slotsPerStripe;
+        this.leakDetection = leakDetection;
+    }
+
+    /**
+     * Returns the pool of a response class, creating it on first use.
+     *
+     * @param type    the concrete response class
+     * @param factory creates new instances
+     * @param <R>     the response type
+     * @return the pool
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends AbsResponse<?>> StripedPool<R> responses(Class<R> type, Supplier<R> factory) {
+        return (StripedPool<R>) pools.computeIfAbsent(type,
+                k -> new StripedPool<R>(factory, AbsResponse::reset, stripes, slotsPerStripe, leakDetection));
+    }
+
+    /**
+     * Returns the pool of a request class, creating it on first use.
+     *
+     * @param type    the concrete request class
+     * @param factory creates new instances
+     * @param <R>     the request type
+     * @return the pool
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends AbsRequest<?>> StripedPool<R> requests(Class<R> type, Supplier<R> factory) {
+        return (StripedPool<R>) pools.computeIfAbsent(type,
+                k -> new StripedPool<R>(factory, AbsRequest::reset, stripes, slotsPerStripe, leakDetection));
+    }
+
+    /**
+     * @param envelope any object
+     * @return true when the object's class has a pool in this registry
+     */
+    public boolean isPooled(Object envelope) {
+        return envelope != null && pools.containsKey(envelope.getClass());
+    }
+
+    /**
+     * Gives an envelope back to the pool of its class.
+     *
+     * @param envelope the envelope
+     * @return false when the class has no pool, in which case nothing happens
+     */
+    @SuppressWarnings("unchecked")
+    public boolean release(Object envelope) {
+        if (envelope == null) {
+            return false;
+        }
+        StripedPool<Object> pool = (StripedPool<Object>) pools.get(envelope.getClass());
+        if (pool == null) {
+            return false;
+        }
+        pool.release(envelope);
+        return true;
+    }
+
+    /**
+     * Gives an envelope back to the pool of its class when the pool can take it: with leak
+     * detection, only if it is currently leased from that pool.
+     *
+     * @param envelope the envelope
+     * @return false when the envelope was not released
+     */
+    @SuppressWarnings("unchecked")
+    public boolean recycle(Object envelope) {
+        if (envelope == null) {
+            return false;
+        }
+        StripedPool<Object> pool = (StripedPool<Object>) pools.get(envelope.getClass());
+        if (pool == null || (pool.isLeakDetection() && !pool.isLeased(envelope))) {
+            return false;
+        }
+        pool.release(envelope);
+        return true;
+    }
+
+    /**
+     * Runs {@link StripedPool#detectLeaks()} on every pool.
+     *
+     * @return the number of leaked envelopes
+     */
+    public int detectLeaks() {
+        if (!leakDetection) {
+            return 0;
+        }
+        int leaked = 0;
+        for (StripedPool<?> pool : pools.values()) {
+            leaked += pool.detectLeaks();
+        }
+        return leaked;
+    }
+}
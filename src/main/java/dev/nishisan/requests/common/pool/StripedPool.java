@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pool;
+
+import java.lang.System.Logger.Level;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, lock-free object pool split in stripes.
+ *
+ * Each thread is mapped to a stripe by its id and only scans the few slots of that stripe, so
+ * threads rarely touch the same slots. Nothing is kept in thread-locals: with virtual threads a
+ * per-thread cache would grow with the number of threads, whereas here the number of retained
+ * objects never exceeds {@code stripes * slotsPerStripe}. The default stripe count matches the
+ * number of processors, i.e. the number of carrier threads of the default virtual thread
+ * scheduler. When the stripe is empty {@link #acquire()} creates a new object; when it is full
+ * {@link #release(Object)} drops the object and leaves it to the GC.
+ *
+ * In leak detection mode every acquired object is tracked with the stack of its acquisition,
+ * releasing an object twice (or one that did not come from the pool) fails, and
+ * {@link #detectLeaks()} reports what the current thread still holds, along with what threads
+ * that have ended since (e.g. virtual threads of async or batch work) never released. Objects
+ * held by other live threads, such as the workers of a long-lived executor, are only reported once
+ * those threads end. At most {@value #MAX_TRACKED_LEASES} objects are tracked at once; past that,
+ * acquisitions are not tracked and releases are not checked until {@link #detectLeaks()} finds
+ * the count back under the limit.
+ * This mode is meant for development: it allocates on every acquisition.
+ *
+ * @param <T> the type of the pooled objects
+ * @author Lucas Nishimura
+ */
+public class StripedPool<T> {
+
+    private static final System.Logger LOGGER = System.getLogger(StripedPool.class.getName());
+
+    /**
+     * Default number of slots per stripe.
+     */
+    public static final int DEFAULT_SLOTS_PER_STRIPE = 8;
+
+    /**
+     * Maximum number of objects tracked at once in leak detection mode.
+     */
+    public static final int MAX_TRACKED_LEASES = 10_000;
+
+    private final Supplier<? extends T> factory;
+    private final Consumer<? super T> reset;
+    private final AtomicReferenceArray<T> slots;
+    private final int stripeMask;
+    private final int slotsPerStripe;
+    private final Map<Lease, Lease> leases;
+    private final int maxLeases;
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+
+    /**
+     * Creates a pool with the default sizing and no leak detection.
+     *
+     * @param factory creates new objects when the pool is empty
+     * @param reset   clears an object before it goes back to the pool
+     */
+    public StripedPool(Supplier<? extends T> factory, Consumer<? super T> reset) {
+        this(factory, reset, 0, DEFAULT_SLOTS_PER_STRIPE, false);
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory        creates new objects when the pool is empty
+     * @param reset          clears an object before it goes back to the pool
+     * @param stripes        number of stripes, rounded up to a power of two; 0 for the number
+     *                       of processors
+     * @param slotsPerStripe number of objects retained per stripe
+     * @param leakDetection  whether acquisitions are tracked, see the class documentation
+     */
+    public StripedPool(Supplier<? extends T> factory, Consumer<? super T> reset, int stripes, int slotsPerStripe, boolean leakDetection) {
+        this(factory, reset, stripes, slotsPerStripe, leakDetection, MAX_TRACKED_LEASES);
+    }
+
+    StripedPool(Supplier<? extends T> factory, Consumer<? super T> reset, int stripes, int slotsPerStripe, boolean leakDetection,
+                int maxLeases) {
+        if (slotsPerStripe < 1) {
+            throw new IllegalArgumentException("slotsPerStripe must be positive");
+        }
+        this.factory = Objects.requireNonNull(factory, "factory");
+        this.reset = Objects.requireNonNull(reset, "reset");
+        int requested = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        int stripeCount = requested == 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+        this.stripeMask = stripeCount - 1;
+        this.slotsPerStripe = slotsPerStripe;
+        this.slots = new AtomicReferenceArray<>(stripeCount * slotsPerStripe);
+        this.leases = leakDetection ? new ConcurrentHashMap<>() : null;
+        this.maxLeases = maxLeases;
+    }
+
+    /**
+     * Takes an object from the pool, or creates one when the stripe of the current thread is
+     * empty.
+     *
+     * @return a reset object, owned by the caller until {@link #release(Object)}
+     */
+    public T acquire() {
+        int base = stripeBase();
+        T object = null;
+        for (int i = base; i < base + slotsPerStripe; i++) {
+            T candidate = slots.get(i);
+            if (candidate != null && slots.compareAndSet(i, candidate, null)) {
+                object = candidate;
+                break;
+            }
+        }
+        if (object == null) {
+            object = factory.get();
+        }
+        if (leases != null) {
+            track(object);
+        }
+        return object;
+    }
+
+    /**
+     * Resets an object and gives it back to the pool. The caller must not use it afterwards.
+     *
+     * @param object an object previously returned by {@link #acquire()}
+     * @throws IllegalStateException in leak detection mode, when the object is not currently
+     *                               leased from this pool
+     */
+    public void release(T object) {
+        if (object == null) {
+            return;
+        }
+        if (leases != null && leases.remove(new Lease(object, null, null)) == null && !overflowed.get()) {
+            throw new IllegalStateException("Object released twice or not acquired from this pool: " + object.getClass().getName());
+        }
+        reset.accept(object);
+        int base = stripeBase();
+        for (int i = base; i < base + slotsPerStripe; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, object)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reports, and stops tracking, the objects acquired by the current thread, or by a thread
+     * that has ended, that were not released. Meant to be called when a unit of work (e.g. an
+     * HTTP request) ends; does nothing unless leak detection is enabled.
+     *
+     * @return the number of leaked objects
+     */
+    public int detectLeaks() {
+        if (leases == null || leases.isEmpty()) {
+            return 0;
+        }
+        Thread current = Thread.currentThread();
+        int leaked = 0;
+        for (Lease lease : leases.keySet()) {
+            Thread owner = lease.owner.get();
+            if ((owner == current || owner == null || !owner.isAlive()) && leases.remove(lease) != null) {
+                leaked++;
+                LOGGER.log(Level.WARNING, "Pooled " + lease.object.getClass().getName()
+                        + " was not released before the end of its scope", lease.site);
+            }
+        }
+        if (leases.size() < maxLeases) {
+            overflowed.set(false);
+        }
+        return leaked;
+    }
+
+    /**
+     * @return true when acquisitions are tracked
+     */
+    public boolean isLeakDetection() {
+        return leases != null;
+    }
+
+    /**
+     * @param object an object
+     * @return true when the object is currently leased from this pool, always false without leak
+     * detection
+     */
+    public boolean isLeased(T object) {
+        return leases != null && object != null && leases.containsKey(new Lease(object, null, null));
+    }
+
+    /**
+     * @return the number of tracked objects not yet released, always 0 without leak detection
+     */
+    public int outstanding() {
+        return leases == null ? 0 : leases.size();
+    }
+
+    private void track(T object) {
+        if (leases.size() >= maxLeases) {
+            if (overflowed.compareAndSet(false, true)) {
+                LOGGER.log(Level.WARNING, "More than " + maxLeases + " pooled objects are leased at once;"
+                        + " new acquisitions are not tracked until some are released");
+            }
+            return;
+        }
+        Lease lease = new Lease(object, Thread.currentThread(), new Throwable("Acquired here"));
+        leases.put(lease, lease);
+    }
+
+    private int stripeBase() {
+        int hash = (int) Thread.currentThread().threadId() * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & stripeMask) * slotsPerStripe;
+    }
+
+    /**
+     * Identity-based tracking entry of an acquired object. The owner is held weakly, so a leaked
+     * object does not keep its thread alive.
+     */
+    private static final class Lease {
+
+        private final Object object;
+        private final WeakReference<Thread> owner;
+        private final Throwable site;
+
+        Lease(Object object, Thread owner, Throwable site) {
+            this.object = object;
+            this.owner = owner == null ? null : new WeakReference<>(owner);
+            this.site = site;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Lease lease && lease.object == this.object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+    }
+}
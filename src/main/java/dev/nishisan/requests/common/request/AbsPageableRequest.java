@@ -34,4 +34,21 @@ public class AbsPageableRequest extends AbsRequest<PageableDTO> {
         this.setPayload(new PageableDTO(page, size, sort, sortDirection, query));
     }
 
+    /**
+     * Keyset paging constructor.
+     *
+     * @param cursor        the cursor of the previous response, null for the first page
+     * @param size          the page size
+     * @param sort          the sort property
+     * @param sortDirection the sort direction
+     * @param query         the query
+     * @param countTotal    whether the total count must be computed
+     */
+    public AbsPageableRequest(String cursor, Integer size, String sort, String sortDirection, String query, boolean countTotal) {
+        PageableDTO pageable = new PageableDTO(0, size, sort, sortDirection, query);
+        pageable.setCursor(cursor);
+        pageable.setCountTotal(countTotal);
+        this.setPayload(pageable);
+    }
+
 }
@@ -17,8 +17,9 @@
 package dev.nishisan.requests.common.request;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.headers.HeaderMap;
 import dev.nishisan.requests.common.uc.IUserCredential;
 
 /**
@@ -34,19 +35,29 @@ public abstract class AbsRequest<T> implements IRequest<T> {
     private String traceId;
     private T payload;
     private IUserCredential userCredential;
-    private Map<String, String> requestHeaders = new ConcurrentHashMap<>();
+    private HeaderMap requestHeaders;
 
+    /**
+     * Takes the trace ID and credential of the current {@link RequestContext}, if any. The
+     * request ID is not inherited: it identifies this request, e.g. an item of a batch or a call
+     * made downstream, not the one being handled.
+     */
     public AbsRequest() {
-
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            this.traceId = context.getTraceId();
+            this.userCredential = context.getCredential();
+        }
     }
 
     public AbsRequest(T payload) {
+        this();
         this.payload = payload;
     }
 
     public AbsRequest(String requestId, T payload) {
+        this(payload);
         this.requestId = requestId;
-        this.payload = payload;
     }
 
     /**
@@ -86,15 +97,27 @@ public abstract class AbsRequest<T> implements IRequest<T> {
      */
     @Override
     public void addRequestHeader(String name, String value) {
-        this.requestHeaders.put(name, value);
+        this.requestHeaders().put(name, value);
     }
 
     /**
      * {@inheritDoc}
+     *
+     * The returned map is a {@link HeaderMap}, created on first use and not thread-safe unless
+     * configured otherwise.
      */
     @Override
     public Map<String, String> getRequestHeaders() {
-        return this.requestHeaders;
+        return this.requestHeaders();
+    }
+
+    /**
+     * Tells whether any request header was set, without creating the header map.
+     *
+     * @return {@code true} if the envelope carries at least one request header
+     */
+    public boolean hasRequestHeaders() {
+        return this.requestHeaders != null && !this.requestHeaders.isEmpty();
     }
 
     /**
@@ -102,7 +125,16 @@ public abstract class AbsRequest<T> implements IRequest<T> {
      */
     @Override
     public String getRequestHeader(String name) {
-        return this.requestHeaders.get(name);
+        return this.requestHeaders == null ? null : this.requestHeaders.get(name);
+    }
+
+    public void setRequestHeaders(Map<String, String> requestHeaders) {
+        if (requestHeaders == null) {
+            this.requestHeaders = null;
+        } else {
+            this.requestHeaders = new HeaderMap();
+            this.requestHeaders.putAll(requestHeaders);
+        }
     }
 
     /**
@@ -129,4 +161,28 @@ public abstract class AbsRequest<T> implements IRequest<T> {
     public void setTraceId(String traceId) {
         this.traceId = traceId;
     }
+
+    /**
+     * Clears every field so the instance can be reused for another request, e.g. by
+     * {@link dev.nishisan.requests.common.pool.EnvelopePools}.
+     *
+     * The header map is emptied but kept, so a recycled request does not allocate it again.
+     * Subclasses that add state must override this method and call it.
+     */
+    public void reset() {
+        this.requestId = null;
+        this.traceId = null;
+        this.payload = null;
+        this.userCredential = null;
+        if (this.requestHeaders != null) {
+            this.requestHeaders.clear();
+        }
+    }
+
+    private HeaderMap requestHeaders() {
+        if (this.requestHeaders == null) {
+            this.requestHeaders = new HeaderMap();
+        }
+        return this.requestHeaders;
+    }
 }
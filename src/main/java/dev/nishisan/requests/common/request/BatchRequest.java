@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.request;
+
+import java.util.List;
+
+/**
+ * Request carrying several sub-requests to be handled in one call.
+ *
+ * Each item keeps its own request ID, which identifies its result in the matching
+ * {@code BatchResponse}. Items are handled with the trace ID of the batch, and with its
+ * credential when they have none.
+ *
+ * @param <T> the type of the items
+ * @author Lucas Nishimura
+ */
+public class BatchRequest<T extends IRequest<?>> extends AbsRequest<List<T>> {
+
+    public BatchRequest() {
+    }
+
+    /**
+     * @param items the sub-requests
+     */
+    public BatchRequest(List<T> items) {
+        super(items);
+    }
+
+    /**
+     * @param requestId the ID of the batch
+     * @param items     the sub-requests
+     */
+    public BatchRequest(String requestId, List<T> items) {
+        super(requestId, items);
+    }
+}
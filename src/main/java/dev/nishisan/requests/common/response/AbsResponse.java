@@ -17,12 +17,17 @@
 package dev.nishisan.requests.common.response;
 
 
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.headers.HeaderMap;
+import dev.nishisan.requests.common.response.id.ResponseIds;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -33,31 +38,61 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public abstract class AbsResponse<T> implements IResponse<T> {
 
+    private static final VarHandle RESPONSE_ID;
+
+    /**
+     * Held by {@code responseId} until a lazily generated ID is assigned; compared by identity.
+     */
+    private static final String PENDING_ID = new String("pending");
+
+    static {
+        try {
+            RESPONSE_ID = MethodHandles.lookup().findVarHandle(AbsResponse.class, "responseId", String.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
     private String sourceRequestId;
     private String responseId;
     private String traceId;
     private T payload;
     private int statusCode;
-    private Map<String, String> responseHeaders = new ConcurrentHashMap<>();
+    private HeaderMap responseHeaders;
     private long size;
     private long totalPages;
+    private String nextCursor;
+    private String prevCursor;
+    private RawJson serializedPayload;
 
     /**
      * Default constructor that generates a unique response ID.
+     *
+     * The ID comes from the generator configured in {@link ResponseIds}. In lazy mode it is
+     * only generated on the first {@link #getResponseId()} call. The trace ID and source
+     * request ID come from the current {@link RequestContext}, if any.
      */
     public AbsResponse() {
-        this.responseId = UUID.randomUUID().toString();
+        this.assignResponseId();
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            this.traceId = context.getTraceId();
+            this.sourceRequestId = context.getRequestId();
+        }
     }
 
     /**
      * Constructor with source request ID and payload.
      *
-     * @param sourceRequestId the ID of the source request
+     * @param sourceRequestId the ID of the source request, null to keep the one of the
+     *                        current {@link RequestContext}
      * @param payload         the payload of the response
      */
     public AbsResponse(String sourceRequestId, T payload) {
         this(payload);
-        this.sourceRequestId = sourceRequestId;
+        if (sourceRequestId != null) {
+            this.sourceRequestId = sourceRequestId;
+        }
         this.payload = payload;
     }
 
@@ -76,6 +111,10 @@ public abstract class AbsResponse<T> implements IResponse<T> {
         } else if (this.payload instanceof Page p) {
             this.size = p.getSize();
             this.totalPages = p.getTotalPages();
+        } else if (this.payload instanceof Slice<?> slice) {
+            this.size = slice.getSize();
+        } else if (this.payload instanceof Window<?> window) {
+            this.size = window.size();
         }
 
     }
@@ -101,15 +140,24 @@ public abstract class AbsResponse<T> implements IResponse<T> {
      */
     @Override
     public void setResponseId(String id) {
-        this.responseId = id;
+        RESPONSE_ID.setRelease(this, id);
     }
 
     /**
      * {@inheritDoc}
+     *
+     * In lazy mode the ID is generated here on the first call. Concurrent first calls agree on
+     * a single ID.
      */
     @Override
     public String getResponseId() {
-        return this.responseId;
+        String current = (String) RESPONSE_ID.getAcquire(this);
+        if (current != PENDING_ID) {
+            return current;
+        }
+        String id = ResponseIds.nextId();
+        String witness = (String) RESPONSE_ID.compareAndExchange(this, PENDING_ID, id);
+        return witness == PENDING_ID ? id : witness;
     }
 
     /**
@@ -126,6 +174,7 @@ public abstract class AbsResponse<T> implements IResponse<T> {
     @Override
     public void setPayload(T payload) {
         this.payload = payload;
+        this.serializedPayload = null;
     }
 
     /**
@@ -149,7 +198,7 @@ public abstract class AbsResponse<T> implements IResponse<T> {
      */
     @Override
     public void addResponseHeader(String name, String value) {
-        this.responseHeaders.put(name, value);
+        this.responseHeaders().put(name, value);
     }
 
     /**
@@ -157,15 +206,27 @@ public abstract class AbsResponse<T> implements IResponse<T> {
      */
     @Override
     public String getResponseHeader(String name) {
-        return this.responseHeaders.get(name);
+        return this.responseHeaders == null ? null : this.responseHeaders.get(name);
     }
 
     /**
      * {@inheritDoc}
+     *
+     * The returned map is a {@link HeaderMap}, created on first use and not thread-safe unless
+     * configured otherwise.
      */
     @Override
     public Map<String, String> getResponseHeaders() {
-        return this.responseHeaders;
+        return this.responseHeaders();
+    }
+
+    /**
+     * Tells whether any response header was set, without creating the header map.
+     *
+     * @return {@code true} if the envelope carries at least one response header
+     */
+    public boolean hasResponseHeaders() {
+        return this.responseHeaders != null && !this.responseHeaders.isEmpty();
     }
 
     public String getTraceId() {
@@ -184,8 +245,35 @@ public abstract class AbsResponse<T> implements IResponse<T> {
         this.totalPages = totalPages;
     }
 
+    /**
+     * @return the keyset cursor of the next page, null when there is none
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the keyset cursor of the previous page, null when there is none
+     */
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public void setPrevCursor(String prevCursor) {
+        this.prevCursor = prevCursor;
+    }
+
     public void setResponseHeaders(Map<String, String> responseHeaders) {
-        this.responseHeaders = responseHeaders == null ? null : new java.util.HashMap<>(responseHeaders);
+        if (responseHeaders == null) {
+            this.responseHeaders = null;
+        } else {
+            this.responseHeaders = new HeaderMap();
+            this.responseHeaders.putAll(responseHeaders);
+        }
     }
 
     public long getSize() {
@@ -195,4 +283,78 @@ public abstract class AbsResponse<T> implements IResponse<T> {
     public void setSize(long size) {
         this.size = size;
     }
+
+    /**
+     * @return the serialized form of the payload, or null when it is serialized on write
+     */
+    public RawJson serializedPayload() {
+        return serializedPayload;
+    }
+
+    /**
+     * Attaches the serialized form of the current payload. With the {@code EnvelopeModule}, JSON
+     * output then writes these bytes instead of serializing the payload; other formats still
+     * serialize it. Setting another payload detaches it.
+     *
+     * @param serializedPayload the payload serialized as JSON, null to detach it
+     */
+    public void attachSerializedPayload(RawJson serializedPayload) {
+        this.serializedPayload = serializedPayload;
+    }
+
+    /**
+     * Copies the result of another response into this one: payload, status code, size, paging
+     * fields, headers and serialized payload. The IDs are kept, so the copy still answers its own request.
+     *
+     * The payload is shared, not cloned; the headers are copied. Subclasses that add state must
+     * override this method and call it.
+     *
+     * @param source the response to copy
+     */
+    public void copyFrom(AbsResponse<? extends T> source) {
+        this.payload = source.payload;
+        this.statusCode = source.statusCode;
+        this.size = source.size;
+        this.totalPages = source.totalPages;
+        this.nextCursor = source.nextCursor;
+        this.prevCursor = source.prevCursor;
+        this.serializedPayload = source.serializedPayload;
+        if (source.hasResponseHeaders()) {
+            this.responseHeaders().putAll(source.responseHeaders);
+        }
+    }
+
+    /**
+     * Clears every field and assigns a new response ID, so the instance can be reused for
+     * another response, e.g. by {@link dev.nishisan.requests.common.pool.EnvelopePools}.
+     *
+     * The header map is emptied but kept, so a recycled response does not allocate it again.
+     * Subclasses that add state must override this method and call it.
+     */
+    public void reset() {
+        this.sourceRequestId = null;
+        this.traceId = null;
+        this.payload = null;
+        this.statusCode = 0;
+        this.size = 0;
+        this.totalPages = 0;
+        this.nextCursor = null;
+        this.prevCursor = null;
+        this.serializedPayload = null;
+        if (this.responseHeaders != null) {
+            this.responseHeaders.clear();
+        }
+        this.assignResponseId();
+    }
+
+    private void assignResponseId() {
+        this.responseId = ResponseIds.isLazy() ? PENDING_ID : ResponseIds.nextId();
+    }
+
+    private HeaderMap responseHeaders() {
+        if (this.responseHeaders == null) {
+            this.responseHeaders = new HeaderMap();
+        }
+        return this.responseHeaders;
+    }
 }
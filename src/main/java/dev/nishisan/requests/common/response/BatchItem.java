@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response;
+
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+
+/**
+ * Outcome of one sub-request of a batch: its response, or the error it failed with.
+ *
+ * @param <R> the type of the response
+ * @author Lucas Nishimura
+ */
+public class BatchItem<R> {
+
+    private String requestId;
+    private int statusCode;
+    private R response;
+    private ApiErrorDTO error;
+
+    public BatchItem() {
+    }
+
+    /**
+     * @param requestId  the ID of the sub-request
+     * @param statusCode the HTTP status of the sub-request
+     * @param response   the response, null when the sub-request failed
+     * @param error      the error, null when the sub-request succeeded
+     */
+    public BatchItem(String requestId, int statusCode, R response, ApiErrorDTO error) {
+        this.requestId = requestId;
+        this.statusCode = statusCode;
+        this.response = response;
+        this.error = error;
+    }
+
+    /**
+     * @return the requestId
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @param requestId the requestId to set
+     */
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * @return the statusCode
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @param statusCode the statusCode to set
+     */
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return the response
+     */
+    public R getResponse() {
+        return response;
+    }
+
+    /**
+     * @param response the response to set
+     */
+    public void setResponse(R response) {
+        this.response = response;
+    }
+
+    /**
+     * @return the error
+     */
+    public ApiErrorDTO getError() {
+        return error;
+    }
+
+    /**
+     * @param error the error to set
+     */
+    public void setError(ApiErrorDTO error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response;
+
+import java.util.List;
+
+/**
+ * Response to a {@code BatchRequest}, with one {@link BatchItem} per sub-request, in the order
+ * of the request.
+ *
+ * The status code is the one shared by every item, or {@link #MULTI_STATUS} when they differ,
+ * so a batch that fully succeeded or fully failed answers like a single request would. Items
+ * that all answered {@code 204 No Content} make a {@code 200}, since the batch still has a body.
+ *
+ * @param <R> the type of the item responses
+ * @author Lucas Nishimura
+ */
+public class BatchResponse<R extends IResponse<?>> extends AbsResponse<List<BatchItem<R>>> {
+
+    /**
+     * WebDAV's 207 Multi-Status, sent when the items ended with different statuses.
+     */
+    public static final int MULTI_STATUS = 207;
+
+    public BatchResponse() {
+    }
+
+    /**
+     * @param sourceRequestId the ID of the batch request
+     * @param items           the outcome of each sub-request
+     */
+    public BatchResponse(String sourceRequestId, List<BatchItem<R>> items) {
+        super(sourceRequestId, items);
+        this.setStatusCode(statusOf(items));
+    }
+
+    /**
+     * @param items the outcome of each sub-request
+     * @return the status shared by the items, {@link #MULTI_STATUS} when they differ, or 200
+     * when there are none or they share 204
+     */
+    public static int statusOf(List<? extends BatchItem<?>> items) {
+        int status = 0;
+        for (BatchItem<?> item : items) {
+            if (status == 0) {
+                status = item.getStatusCode();
+            } else if (status != item.getStatusCode()) {
+                return MULTI_STATUS;
+            }
+        }
+        return status == 0 || status == 204 ? 200 : status;
+    }
+}
@@ -105,4 +105,16 @@ public interface IResponse<T> {
      * @return a map of header names to values
      */
     public Map<String, String> getResponseHeaders();
+
+    /**
+     * Gets a version of the payload, used as entity tag for conditional requests.
+     *
+     * Responses that know when their payload changes (a row version, a last update time) can
+     * return it, sparing the payload from being serialized to compute a hash.
+     *
+     * @return the payload version, or null to have it computed from the payload
+     */
+    public default String entityVersion() {
+        return null;
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+
+/**
+ * Blocking {@link Iterator} view of a {@link Flow.Publisher}, used by {@link StreamingResponse}.
+ *
+ * Demand is bounded: at most {@code batchSize} items are requested ahead of the consumer, and
+ * more are requested as the consumer drains half of them. A slow consumer (e.g. a slow client
+ * on the other end of the servlet output stream) therefore slows the publisher down instead of
+ * piling items up in memory. Meant to be consumed by a single thread.
+ *
+ * @param <T> the type of the items
+ * @author Lucas Nishimura
+ */
+class PublisherIterator<T> implements Iterator<T>, Flow.Subscriber<T>, AutoCloseable {
+
+    private static final Object COMPLETE = new Object();
+
+    private final int batchSize;
+    private final int replenishAt;
+    private final BlockingQueue<Object> queue;
+    private volatile Flow.Subscription subscription;
+    private Object next;
+    private int consumed;
+    private boolean done;
+
+    PublisherIterator(Flow.Publisher<? extends T> publisher, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        this.replenishAt = Math.max(1, batchSize / 2);
+        // room for a full batch plus the terminal signal
+        this.queue = new ArrayBlockingQueue<>(batchSize + 1);
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+        queue.offer(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        queue.offer(new Failure(throwable));
+    }
+
+    @Override
+    public void onComplete() {
+        queue.offer(COMPLETE);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for the publisher", ex);
+        }
+        if (item == COMPLETE) {
+            done = true;
+            return false;
+        }
+        if (item instanceof Failure failure) {
+            done = true;
+            if (failure.cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Publisher failed", failure.cause);
+        }
+        next = item;
+        if (++consumed == replenishAt) {
+            consumed = 0;
+            subscription.request(replenishAt);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = (T) next;
+        next = null;
+        return item;
+    }
+
+    /**
+     * Cancels the subscription when the consumer stops early.
+     */
+    @Override
+    public void close() {
+        if (!done) {
+            done = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private record Failure(Throwable cause) {
+    }
+}
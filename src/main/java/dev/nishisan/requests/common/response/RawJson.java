@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import dev.nishisan.requests.common.pool.StripedPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A JSON value already encoded as UTF-8, written as is by JSON generators.
+ *
+ * The bytes are held in an array or in a {@link ByteBuffer}, which can be direct or mapped from
+ * a snapshot file (see {@link #map(Path)}). A raw value can be a payload itself, e.g. an
+ * {@code AbsResponse<RawJson>} for reference data, or the serialized form of another payload
+ * (see {@link AbsResponse#attachSerializedPayload}); either way a response whose payload does not
+ * change is not serialized again on every write. The bytes are not validated: they must hold
+ * exactly one JSON value, and must not be modified once wrapped.
+ *
+ * When a buffer of more than {@value #STREAM_THRESHOLD} bytes is written by a generator over an
+ * {@link OutputStream}, the generator is flushed and the buffer goes straight to the stream: through
+ * its {@code write(ByteBuffer)} method when it has one (Servlet 6.1, Tomcat's output stream),
+ * as a {@link WritableByteChannel}, or else through pooled chunks, so it is never copied whole
+ * to the heap.
+ * Binary formats get the value re-encoded token by token.
+ *
+ * Instances are immutable and thread safe.
+ *
+ * @author Lucas Nishimura
+ */
+public final class RawJson implements SerializableString, JsonSerializable {
+
+    /**
+     * Size above which a buffer is written straight to the output stream.
+     */
+    public static final int STREAM_THRESHOLD = 2048;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final StripedPool<byte[]> CHUNKS = new StripedPool<>(() -> new byte[CHUNK_SIZE], chunk -> {
+    });
+
+    private static final ClassValue<MethodHandle> BUFFER_WRITERS = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup().findVirtual(type, "write", MethodType.methodType(void.class, ByteBuffer.class));
+            } catch (ReflectiveOperationException ex) {
+                return null;
+            }
+        }
+    };
+
+    private final byte[] utf8;
+    private final ByteBuffer buffer;
+    private volatile String value;
+
+    private RawJson(byte[] utf8, ByteBuffer buffer) {
+        this.utf8 = utf8;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param utf8 a JSON value encoded as UTF-8, not copied
+     * @return the raw value
+     */
+    public static RawJson of(byte[] utf8) {
+        return new RawJson(utf8, null);
+    }
+
+    /**
+     * @param utf8 a buffer whose remaining bytes are a JSON value encoded as UTF-8, not copied;
+     *             its position and limit are not changed
+     * @return the raw value
+     */
+    public static RawJson of(ByteBuffer utf8) {
+        if (utf8.hasArray() && utf8.arrayOffset() == 0 && utf8.position() == 0 && utf8.limit() == utf8.array().length) {
+            return new RawJson(utf8.array(), null);
+        }
+        return new RawJson(null, utf8.slice());
+    }
+
+    /**
+     * Maps a snapshot file read-only. The mapping lives as long as the value is reachable; the
+     * file must not be modified meanwhile.
+     *
+     * @param file a file holding a JSON value encoded as UTF-8, of at most 2 GB
+     * @return the raw value
+     * @throws IOException if the file cannot be mapped
+     */
+    public static RawJson map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new RawJson(null, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of bytes of the value
+     */
+    public int byteLength() {
+        return utf8 != null ? utf8.length : buffer.remaining();
+    }
+
+    /**
+     * Writes the bytes to a stream, avoiding heap copies of buffers when the stream allows it.
+     *
+     * @param out the stream
+     * @throws IOException if the stream fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (utf8 != null) {
+            out.write(utf8);
+            return;
+        }
+        ByteBuffer bytes = buffer.duplicate();
+        if (bytes.hasArray()) {
+            out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            return;
+        }
+        MethodHandle writer = BUFFER_WRITERS.get(out.getClass());
+        if (writer != null) {
+            try {
+                writer.invoke(out, bytes);
+                return;
+            } catch (IOException | RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IOException(ex);
+            }
+        }
+        if (out instanceof WritableByteChannel channel) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            return;
+        }
+        byte[] chunk = CHUNKS.acquire();
+        try {
+            while (bytes.hasRemaining()) {
+                int length = Math.min(chunk.length, bytes.remaining());
+                bytes.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        } finally {
+            CHUNKS.release(chunk);
+        }
+    }
+
+    /**
+     * Writes the value: raw to JSON generators, re-encoded to the others.
+     */
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (!(gen instanceof JsonGeneratorImpl)) {
+            try (JsonParser parser = utf8 != null ? JSON_FACTORY.createParser(utf8)
+                    : JSON_FACTORY.createParser(new ByteBufferBackedInputStream(buffer.duplicate()))) {
+                parser.nextToken();
+                gen.copyCurrentStructure(parser);
+            }
+        } else if (utf8 == null && buffer.remaining() > STREAM_THRESHOLD && gen.getOutputTarget() instanceof OutputStream out) {
+            gen.writeRawValue("");
+            boolean flushStream = gen.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            gen.flush();
+            if (flushStream) {
+                gen.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            }
+            writeTo(out);
+        } else {
+            gen.writeRawValue(this);
+        }
+    }
+
+    /**
+     * A raw value carries no type information, it is written as is.
+     */
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+
+    @Override
+    public String getValue() {
+        String decoded = value;
+        if (decoded == null) {
+            decoded = utf8 != null ? new String(utf8, StandardCharsets.UTF_8) : StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+            value = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+        return quoted().asQuotedChars();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        if (utf8 != null) {
+            return utf8;
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        return quoted().asQuotedUTF8();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        return quoted().appendQuotedUTF8(buffer, offset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        return quoted().appendQuoted(buffer, offset);
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] target, int offset) {
+        int length = byteLength();
+        if (offset + length > target.length) {
+            return -1;
+        }
+        if (utf8 != null) {
+            System.arraycopy(utf8, 0, target, offset, length);
+        } else {
+            buffer.duplicate().get(target, offset, length);
+        }
+        return length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] target, int offset) {
+        String decoded = getValue();
+        if (offset + decoded.length() > target.length) {
+            return -1;
+        }
+        decoded.getChars(0, decoded.length(), target, offset);
+        return decoded.length();
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        return quoted().writeQuotedUTF8(out);
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        writeTo(out);
+        return byteLength();
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer target) throws IOException {
+        return quoted().putQuotedUTF8(target);
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer target) throws IOException {
+        int length = byteLength();
+        if (target.remaining() < length) {
+            return -1;
+        }
+        if (utf8 != null) {
+            target.put(utf8);
+        } else {
+            target.put(buffer.duplicate());
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+
+    private SerializedString quoted() {
+        return new SerializedString(getValue());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Response whose payload is produced while it is being written, for exports too large to be held
+ * in memory.
+ *
+ * The payload is a {@link Stream}, an {@link Iterator} or a {@link Flow.Publisher}, all consumed
+ * as an iterator. With the Spring integration the envelope fields ({@code responseId},
+ * {@code traceId}, {@code statusCode}, headers) are written first, then the items one by one
+ * straight to the output stream, and {@code size} last, once it is known. Since the status line
+ * is sent before the first item, a failure while producing items can only abort the response.
+ *
+ * The response is closed after being written, which closes the underlying stream (e.g. a
+ * database cursor) or cancels the publisher subscription.
+ *
+ * @param <T> the type of the items
+ * @author Lucas Nishimura
+ */
+public class StreamingResponse<T> extends AbsResponse<Iterator<T>> implements AutoCloseable {
+
+    /**
+     * Number of items requested ahead from a publisher.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final AutoCloseable onClose;
+
+    /**
+     * Constructor with an iterator and the resource to release once it is consumed.
+     *
+     * @param sourceRequestId the ID of the source request
+     * @param items           the items of the payload
+     * @param onClose         called when the response is closed, may be null
+     */
+    public StreamingResponse(String sourceRequestId, Iterator<T> items, AutoCloseable onClose) {
+        super(sourceRequestId, items);
+        this.onClose = onClose;
+    }
+
+    /**
+     * Constructor with a stream, closed once the response is written.
+     *
+     * @param sourceRequestId the ID of the source request
+     * @param items           the items of the payload
+     */
+    public StreamingResponse(String sourceRequestId, Stream<T> items) {
+        this(sourceRequestId, items.iterator(), items);
+    }
+
+    /**
+     * Constructor with a stream, closed once the response is written.
+     *
+     * @param items the items of the payload
+     */
+    public StreamingResponse(Stream<T> items) {
+        this(null, items);
+    }
+
+    /**
+     * Constructor with a publisher, requesting {@link #DEFAULT_BATCH_SIZE} items ahead.
+     *
+     * @param sourceRequestId the ID of the source request
+     * @param items           the items of the payload
+     */
+    public StreamingResponse(String sourceRequestId, Flow.Publisher<? extends T> items) {
+        this(sourceRequestId, items, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor with a publisher.
+     *
+     * @param sourceRequestId the ID of the source request
+     * @param items           the items of the payload
+     * @param batchSize       number of items requested ahead of the writer
+     */
+    public StreamingResponse(String sourceRequestId, Flow.Publisher<? extends T> items, int batchSize) {
+        this(sourceRequestId, new PublisherIterator<>(items, batchSize));
+    }
+
+    private StreamingResponse(String sourceRequestId, PublisherIterator<T> items) {
+        this(sourceRequestId, items, items);
+    }
+
+    /**
+     * Releases the payload source. Safe to call more than once.
+     */
+    @Override
+    public void close() throws Exception {
+        if (onClose != null) {
+            onClose.close();
+        }
+    }
+}
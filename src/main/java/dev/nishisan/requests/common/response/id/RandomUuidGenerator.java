@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response.id;
+
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs through {@link UUID#randomUUID()}.
+ *
+ * This is the historical behavior of {@code AbsResponse} and remains the default. It draws from
+ * {@link java.security.SecureRandom}, which is the slowest option available and may contend
+ * when many threads create responses at the same time.
+ *
+ * @author Lucas Nishimura
+ */
+public class RandomUuidGenerator implements ResponseIdGenerator {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response.id;
+
+/**
+ * Strategy used by {@link dev.nishisan.requests.common.response.AbsResponse} to create its
+ * {@code responseId}.
+ *
+ * Implementations are called from every response constructor (or from the first
+ * {@code getResponseId()} call in lazy mode), so they must be thread-safe and should avoid
+ * locks and blocking entropy sources. A custom implementation can be installed with
+ * {@link ResponseIds#configure(ResponseIdGenerator, boolean)} or registered through
+ * {@code META-INF/services/dev.nishisan.requests.common.response.id.ResponseIdGenerator}.
+ *
+ * @author Lucas Nishimura
+ */
+@FunctionalInterface
+public interface ResponseIdGenerator {
+
+    /**
+     * Creates a new identifier.
+     *
+     * @return a unique identifier, never null
+     */
+    public String nextId();
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response.id;
+
+import java.util.function.Supplier;
+
+/**
+ * The built-in {@link ResponseIdGenerator} implementations, selectable by name from the
+ * configuration ({@code nishi.requests.common.response-id.strategy}).
+ *
+ * @author Lucas Nishimura
+ */
+public enum ResponseIdStrategy {
+
+    /**
+     * Random UUID, see {@link RandomUuidGenerator}.
+     */
+    UUID(RandomUuidGenerator::new),
+    /**
+     * Time-ordered UUID version 7, see {@link UuidV7Generator}.
+     */
+    UUID_V7(UuidV7Generator::new),
+    /**
+     * Time-ordered ULID, see {@link UlidGenerator}.
+     */
+    ULID(UlidGenerator::new),
+    /**
+     * Per-thread counter, see {@link ThreadCounterGenerator}.
+     */
+    THREAD_COUNTER(ThreadCounterGenerator::new);
+
+    private final Supplier<ResponseIdGenerator> factory;
+
+    ResponseIdStrategy(Supplier<ResponseIdGenerator> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Creates a new generator for this strategy.
+     *
+     * @return the generator
+     */
+    public ResponseIdGenerator create() {
+        return factory.get();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response.id;
+
+import java.util.Objects;
+import java.util.ServiceLoader;
+
+/**
+ * Process-wide configuration of how {@link dev.nishisan.requests.common.response.AbsResponse}
+ * creates its {@code responseId}.
+ *
+ * The initial generator is the first {@link ResponseIdGenerator} found through
+ * {@link ServiceLoader}, falling back to {@link RandomUuidGenerator}. In lazy mode the response
+ * constructor skips the generation entirely and the ID is only created on the first
+ * {@code getResponseId()} call, so responses that are never logged or serialized pay nothing.
+ *
+ * Configure it once during startup; the Spring Boot auto-configuration does so from the
+ * {@code nishi.requests.common.response-id.*} properties.
+ *
+ * @author Lucas Nishimura
+ */
+public final class ResponseIds {
+
+    private static volatile ResponseIdGenerator generator = ServiceLoader.load(ResponseIdGenerator.class)
+            .findFirst()
+            .orElseGet(RandomUuidGenerator::new);
+    private static volatile boolean lazy;
+
+    private ResponseIds() {
+    }
+
+    /**
+     * Replaces the generator and the generation mode.
+     *
+     * @param generator the generator used from now on
+     * @param lazy      whether IDs are created on first access instead of on construction
+     */
+    public static void configure(ResponseIdGenerator generator, boolean lazy) {
+        ResponseIds.generator = Objects.requireNonNull(generator, "generator");
+        ResponseIds.lazy = lazy;
+    }
+
+    /**
+     * Creates a new identifier with the current generator.
+     *
+     * @return the new identifier
+     */
+    public static String nextId() {
+        return generator.nextId();
+    }
+
+    /**
+     * @return the current generator
+     */
+    public static ResponseIdGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * @return true when IDs are created on first access
+     */
+    public static boolean isLazy() {
+        return lazy;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.response.id;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates ULIDs: 48 bits of Unix epoch milliseconds followed by 80 random bits, encoded as
+ * 26 characters of Crockford base32.
+ *
+ * Like {@link UuidV7Generator} it is time-ordered and uses {@link ThreadLocalRandom}, but the
+ * textual form is shorter (26 instead of 36 characters) and sorts lexicographically.
+ *
+ * @author Lucas Nishimura
+ */
+public class UlidGenerator implements ResponseIdGenerator {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String nextId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[26];
+        encode(System.currentTimeMillis(), chars, 0, 10);
+        encode(random.nextLong(), chars, 10, 8);
+        encode(random.nextLong(), chars, 18, 8);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the lowest {@code 5 * length} bits of {@code value} into {@code chars}, most
+     * significant character first.
+     */
+    private static void encode(long value, char[] chars, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+}
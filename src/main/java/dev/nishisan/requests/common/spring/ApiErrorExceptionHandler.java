@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring;
+
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+import dev.nishisan.requests.common.exception.ApiErrorRenderer;
+import dev.nishisan.requests.common.exception.BasicException;
+import dev.nishisan.requests.common.exception.BasicIOException;
+import dev.nishisan.requests.common.exception.BasicRuntimeException;
+import dev.nishisan.requests.common.exception.IBasicException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns the library exceptions thrown by controllers into {@link ApiErrorDTO} responses, with
+ * the status of the exception (500 when it has none).
+ *
+ * Rendering is delegated to an {@link ApiErrorRenderer}, which decides how much of the request
+ * goes into the error. The advice has the lowest precedence, which is also the precedence of
+ * advices without {@code @Order}, and Spring does not define which of two equally ordered
+ * advices is asked first. An application advice handling the same exceptions must therefore
+ * declare a higher precedence, e.g. {@code @Order(Ordered.LOWEST_PRECEDENCE - 1)}, or replace
+ * this one by declaring its own {@code ApiErrorExceptionHandler} bean, or disable it with
+ * {@code nishi.requests.common.exceptions.handler-enabled=false}.
+ */
+@RestControllerAdvice
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ApiErrorExceptionHandler {
+
+    private final ApiErrorRenderer renderer;
+
+    public ApiErrorExceptionHandler() {
+        this(new ApiErrorRenderer());
+    }
+
+    public ApiErrorExceptionHandler(ApiErrorRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    @ExceptionHandler({BasicException.class, BasicRuntimeException.class, BasicIOException.class})
+    public ResponseEntity<ApiErrorDTO> handle(Exception exception) {
+        IBasicException basicException = (IBasicException) exception;
+        return ResponseEntity.status(ApiErrorRenderer.statusOf(basicException)).body(renderer.render(basicException));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.response.IResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes envelopes ({@link IRequest}, {@link IResponse} and {@link ApiErrorDTO}) in a
+ * binary Jackson format such as CBOR or Smile, for service-to-service calls.
+ *
+ * The converter is given a copy of the application's {@link ObjectMapper} built on the binary
+ * factory, e.g. {@code objectMapper.copyWith(new CBORFactory())}, so the envelopes have the same
+ * properties as in JSON. Other types are left to the other converters, and a
+ * {@link StreamingResponse} stays JSON only.
+ *
+ * Registered after the JSON converter, it only takes over when the client asks for its media
+ * type: browsers keep getting JSON while internal clients send {@code Accept:
+ * application/cbor}. Clients built on {@code RestClient} or {@code RestTemplate} can register
+ * the same converter to read the responses and send requests in the binary form.
+ *
+ * @author Lucas Nishimura
+ */
+public class BinaryEnvelopeHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    /**
+     * Media type of the Smile format.
+     */
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * @param objectMapper a mapper whose factory produces the binary format
+     * @param mediaType the media type of the format, e.g. {@link MediaType#APPLICATION_CBOR}
+     */
+    public BinaryEnvelopeHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+        super(objectMapper, mediaType);
+    }
+
+    /**
+     * @param type a class
+     * @return whether instances of the class are envelopes handled by this converter
+     */
+    public static boolean isEnvelope(Class<?> type) {
+        return (IRequest.class.isAssignableFrom(type) || IResponse.class.isAssignableFrom(type)
+                || ApiErrorDTO.class.isAssignableFrom(type)) && !StreamingResponse.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return isEnvelope(getJavaType(type, contextClass).getRawClass()) && super.canRead(type, contextClass, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, @Nullable MediaType mediaType) {
+        return isEnvelope(clazz) && super.canWrite(clazz, mediaType);
+    }
+}
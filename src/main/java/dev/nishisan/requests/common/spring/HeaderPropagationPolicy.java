@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring;
+
+import dev.nishisan.requests.common.response.AbsResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Decides which envelope headers ({@link AbsResponse#getResponseHeaders()}) are copied onto the
+ * HTTP response, and which of them are removed from the serialized envelope afterwards.
+ *
+ * By default every envelope header is propagated and the envelope is left untouched. A set of
+ * allowed names restricts propagation; {@code stripPropagated} removes the propagated headers
+ * from the body, so they travel only once, and {@code stripFromBody} lists envelope-only
+ * headers that never reach the JSON body, whether propagated or not. Names are matched ignoring
+ * case.
+ *
+ * Stripping mutates the envelope header map, so it is applied right before the body is written
+ * and is visible to anything reading the envelope afterwards.
+ *
+ * @author Lucas Nishimura
+ */
+public class HeaderPropagationPolicy {
+
+    private final boolean enabled;
+    private final Set<String> allowed;
+    private final boolean stripPropagated;
+    private final Set<String> stripFromBody;
+
+    /**
+     * Propagates every envelope header and strips nothing.
+     */
+    public HeaderPropagationPolicy() {
+        this(true, null, false, null);
+    }
+
+    /**
+     * @param enabled whether envelope headers are copied onto the HTTP response
+     * @param allowed the header names to propagate; {@code null} or empty propagates all
+     * @param stripPropagated whether propagated headers are removed from the envelope body
+     * @param stripFromBody header names always removed from the envelope body
+     */
+    public HeaderPropagationPolicy(boolean enabled, Collection<String> allowed, boolean stripPropagated,
+                                   Collection<String> stripFromBody) {
+        this.enabled = enabled;
+        this.allowed = names(allowed);
+        this.stripPropagated = stripPropagated;
+        this.stripFromBody = names(stripFromBody);
+    }
+
+    /**
+     * Copies the propagated envelope headers onto {@code headers}, replacing any value already
+     * there, then strips the envelope as configured. Envelopes without headers are not touched.
+     *
+     * @param response the envelope being written
+     * @param headers the headers of the outgoing HTTP response
+     */
+    public void apply(AbsResponse<?> response, HttpHeaders headers) {
+        if (!response.hasResponseHeaders()) {
+            return;
+        }
+        Map<String, String> envelopeHeaders = response.getResponseHeaders();
+        boolean strip = !this.stripFromBody.isEmpty() || (this.enabled && this.stripPropagated);
+        if (!strip) {
+            if (this.enabled) {
+                envelopeHeaders.forEach((name, value) -> {
+                    if (isPropagated(name)) {
+                        headers.set(name, value);
+                    }
+                });
+            }
+            return;
+        }
+        Iterator<Map.Entry<String, String>> entries = envelopeHeaders.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, String> entry = entries.next();
+            String name = entry.getKey();
+            boolean propagated = isPropagated(name);
+            if (propagated) {
+                headers.set(name, entry.getValue());
+            }
+            if ((propagated && this.stripPropagated) || this.stripFromBody.contains(name)) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * @param name a header name
+     * @return whether the header is copied onto the HTTP response
+     */
+    public boolean isPropagated(String name) {
+        return this.enabled && (this.allowed.isEmpty() || this.allowed.contains(name));
+    }
+
+    /**
+     * @return whether envelope headers are copied onto the HTTP response
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static Set<String> names(Collection<String> names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.isBlank()) {
+                    set.add(name.trim());
+                }
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.batch.BatchExecutor;
+import dev.nishisan.requests.common.cache.ResponseCache;
+import dev.nishisan.requests.common.coalescing.RequestCoalescer;
+import dev.nishisan.requests.common.exception.ApiErrorRenderer;
+import dev.nishisan.requests.common.exception.StackTracePolicy;
+import dev.nishisan.requests.common.headers.HeaderMap;
+import dev.nishisan.requests.common.jackson.EnvelopeModule;
+import dev.nishisan.requests.common.pageable.CursorCodec;
+import dev.nishisan.requests.common.pageable.PageableConverter;
+import dev.nishisan.requests.common.response.id.ResponseIdGenerator;
+import dev.nishisan.requests.common.response.id.ResponseIds;
+import dev.nishisan.requests.common.spring.ApiErrorExceptionHandler;
+import dev.nishisan.requests.common.spring.HeaderPropagationPolicy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Beans shared by the servlet and reactive auto-configurations: the process-wide settings of
+ * the envelope types and the stack independent components.
+ *
+ * @author Lucas Nishimura
+ */
+@Configuration
+@EnableConfigurationProperties(NishiRequestsCommonProperties.class)
+public class NishiRequestsCommonCoreConfiguration {
+
+    private static final System.Logger LOGGER = System.getLogger(NishiRequestsCommonCoreConfiguration.class.getName());
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ApiErrorRenderer apiErrorRenderer(NishiRequestsCommonProperties properties) {
+        NishiRequestsCommonProperties.Exceptions exceptions = properties.getExceptions();
+        return new ApiErrorRenderer(exceptions.getRequestDetail(), exceptions.getMaxMessageLength(),
+                exceptions.getMaxDetails(), exceptions.getMaxDetailLength());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "nishi.requests.common.exceptions.handler-enabled", havingValue = "true", matchIfMissing = true)
+    public ApiErrorExceptionHandler apiErrorExceptionHandler(ApiErrorRenderer apiErrorRenderer) {
+        return new ApiErrorExceptionHandler(apiErrorRenderer);
+    }
+
+    /**
+     * Runs batch requests with the limits of {@code nishi.requests.common.batch.*}.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public BatchExecutor batchExecutor(NishiRequestsCommonProperties properties, ApiErrorRenderer apiErrorRenderer) {
+        NishiRequestsCommonProperties.Batch batch = properties.getBatch();
+        return new BatchExecutor(batch.getMaxConcurrency(), batch.getMaxItems(), apiErrorRenderer);
+    }
+
+    /**
+     * Coalesces identical reads, per user unless
+     * {@code nishi.requests.common.coalescing.per-user=false}.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RequestCoalescer requestCoalescer(NishiRequestsCommonProperties properties) {
+        return properties.getCoalescing().isPerUser() ? RequestCoalescer.perUser() : new RequestCoalescer();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ResponseIdGenerator responseIdGenerator(NishiRequestsCommonProperties properties) {
+        return properties.getResponseId().getStrategy().create();
+    }
+
+    /**
+     * Installs the {@link ResponseIdGenerator} bean as the process-wide generator used by
+     * {@code AbsResponse}, once every singleton is ready.
+     */
+    @Bean
+    public SmartInitializingSingleton responseIdConfigurer(ResponseIdGenerator generator, NishiRequestsCommonProperties properties) {
+        return () -> ResponseIds.configure(generator, properties.getResponseId().isLazy());
+    }
+
+    @Bean
+    public SmartInitializingSingleton stackTracePolicyConfigurer(NishiRequestsCommonProperties properties) {
+        return () -> StackTracePolicy.setDefault(properties.getExceptions().isStackTraces());
+    }
+
+    @Bean
+    public SmartInitializingSingleton headerMapConfigurer(NishiRequestsCommonProperties properties) {
+        return () -> HeaderMap.configureDefaults(properties.getHeaders().isCaseInsensitive(), properties.getHeaders().isConcurrent());
+    }
+
+    /**
+     * Which envelope headers reach the HTTP response and which are kept out of the body, from
+     * {@code nishi.requests.common.headers.*}.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public HeaderPropagationPolicy headerPropagationPolicy(NishiRequestsCommonProperties properties) {
+        NishiRequestsCommonProperties.Headers headers = properties.getHeaders();
+        return new HeaderPropagationPolicy(headers.isPropagate(), headers.getPropagateAllowed(),
+                headers.isStripPropagated(), headers.getStripFromBody());
+    }
+
+    @Bean
+    public SmartInitializingSingleton pageableConverterConfigurer(NishiRequestsCommonProperties properties) {
+        return () -> PageableConverter.setDefaultMaxSize(properties.getPagination().getMaxPageSize());
+    }
+
+    /**
+     * Codec of the keyset pagination cursors, signed with
+     * {@code nishi.requests.common.pagination.cursor-secret}. Without it a random secret is used,
+     * with a warning: cursors then only work on the instance that issued them, until it restarts.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CursorCodec cursorCodec(NishiRequestsCommonProperties properties) {
+        String secret = properties.getPagination().getCursorSecret();
+        if (secret == null || secret.isEmpty()) {
+            LOGGER.log(System.Logger.Level.WARNING, "nishi.requests.common.pagination.cursor-secret is not set;"
+                    + " cursors are signed with a random secret and are rejected by other instances and after a restart");
+            return CursorCodec.withRandomSecret();
+        }
+        return new CursorCodec(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "com.fasterxml.jackson.databind.Module")
+    @ConditionalOnProperty(name = "nishi.requests.common.jackson.envelope-module", havingValue = "true", matchIfMissing = true)
+    public static class JacksonConfiguration {
+
+        /**
+         * Registered in the application's {@code ObjectMapper} by Spring Boot, as every
+         * Jackson module bean.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public EnvelopeModule envelopeModule() {
+            return new EnvelopeModule();
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "com.fasterxml.jackson.databind.ObjectMapper")
+    public static class CacheConfiguration {
+
+        /**
+         * Response cache sized by {@code nishi.requests.common.cache.*}, serializing cached
+         * payloads with the application's {@code ObjectMapper} when there is one.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public ResponseCache responseCache(NishiRequestsCommonProperties properties, ObjectProvider<ObjectMapper> objectMapper) {
+            NishiRequestsCommonProperties.Cache cache = properties.getCache();
+            return new ResponseCache(cache.getMaxEntries(), cache.getTtl(),
+                    cache.isSerializePayloads() ? objectMapper.getIfAvailable() : null);
+        }
+    }
+}
@@ -0,0 +1,1157 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.config;
+
+import dev.nishisan.requests.common.exception.ApiErrorRenderer;
+import dev.nishisan.requests.common.response.id.ResponseIdStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties of the Spring Boot integration, bound from the
+ * {@code nishi.requests.common} prefix.
+ *
+ * @author Lucas Nishimura
+ */
+@ConfigurationProperties(prefix = "nishi.requests.common")
+public class NishiRequestsCommonProperties {
+
+    /**
+     * Whether the integration is active at all.
+     */
+    private boolean enabled;
+
+    private final ResponseId responseId = new ResponseId();
+    private final Exceptions exceptions = new Exceptions();
+    private final Headers headers = new Headers();
+    private final Pool pool = new Pool();
+    private final Pagination pagination = new Pagination();
+    private final Context context = new Context();
+    private final Metrics metrics = new Metrics();
+    private final Etag etag = new Etag();
+    private final Compression compression = new Compression();
+    private final Binary binary = new Binary();
+    private final Jackson jackson = new Jackson();
+    private final Batch batch = new Batch();
+    private final Coalescing coalescing = new Coalescing();
+    private final Cache cache = new Cache();
+    private final Credentials credentials = new Credentials();
+
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the response id settings
+     */
+    public ResponseId getResponseId() {
+        return responseId;
+    }
+
+    /**
+     * @return the exception settings
+     */
+    public Exceptions getExceptions() {
+        return exceptions;
+    }
+
+    /**
+     * @return the header settings
+     */
+    public Headers getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the pool settings
+     */
+    public Pool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the pagination settings
+     */
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    /**
+     * @return the request context settings
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    /**
+     * @return the metrics settings
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the conditional GET settings
+     */
+    public Etag getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return the response compression settings
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return the binary format settings
+     */
+    public Binary getBinary() {
+        return binary;
+    }
+
+    /**
+     * @return the Jackson settings
+     */
+    public Jackson getJackson() {
+        return jackson;
+    }
+
+    /**
+     * @return the batch request settings
+     */
+    public Batch getBatch() {
+        return batch;
+    }
+
+    /**
+     * @return the request coalescing settings
+     */
+    public Coalescing getCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * @return the response cache settings
+     */
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the credential resolution settings
+     */
+    public Credentials getCredentials() {
+        return credentials;
+    }
+
+    /**
+     * Settings of the {@code responseId} generation ({@code nishi.requests.common.response-id.*}).
+     */
+    public static class ResponseId {
+
+        /**
+         * Built-in generator used when the application does not declare its own
+         * {@code ResponseIdGenerator} bean.
+         */
+        private ResponseIdStrategy strategy = ResponseIdStrategy.UUID;
+
+        /**
+         * Whether the ID is only generated on the first {@code getResponseId()} call.
+         */
+        private boolean lazy;
+
+        /**
+         * @return the strategy
+         */
+        public ResponseIdStrategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * @param strategy the strategy to set
+         */
+        public void setStrategy(ResponseIdStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        /**
+         * @return the lazy
+         */
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        /**
+         * @param lazy the lazy to set
+         */
+        public void setLazy(boolean lazy) {
+            this.lazy = lazy;
+        }
+    }
+
+    /**
+     * Settings of the library exceptions ({@code nishi.requests.common.exceptions.*}).
+     */
+    public static class Exceptions {
+
+        /**
+         * Whether {@code BasicException} and its siblings capture stack traces by default.
+         * Classes annotated with {@code @Stackless} never do.
+         */
+        private boolean stackTraces = true;
+
+        /**
+         * Whether thrown library exceptions are rendered as {@code ApiErrorDTO} responses.
+         */
+        private boolean handlerEnabled = true;
+
+        /**
+         * How much of the request is rendered in error responses.
+         */
+        private ApiErrorRenderer.RequestDetailPolicy requestDetail = ApiErrorRenderer.RequestDetailPolicy.SUMMARIZE;
+
+        /**
+         * Longest error message rendered; longer ones are cut.
+         */
+        private int maxMessageLength = 1024;
+
+        /**
+         * Most details rendered per error.
+         */
+        private int maxDetails = 32;
+
+        /**
+         * Longest string detail value rendered; longer ones are cut.
+         */
+        private int maxDetailLength = 1024;
+
+        /**
+         * @return the stackTraces
+         */
+        public boolean isStackTraces() {
+            return stackTraces;
+        }
+
+        /**
+         * @param stackTraces the stackTraces to set
+         */
+        public void setStackTraces(boolean stackTraces) {
+            this.stackTraces = stackTraces;
+        }
+
+        /**
+         * @return the handler enabled
+         */
+        public boolean isHandlerEnabled() {
+            return handlerEnabled;
+        }
+
+        /**
+         * @param handlerEnabled the handler enabled to set
+         */
+        public void setHandlerEnabled(boolean handlerEnabled) {
+            this.handlerEnabled = handlerEnabled;
+        }
+
+        /**
+         * @return the request detail policy
+         */
+        public ApiErrorRenderer.RequestDetailPolicy getRequestDetail() {
+            return requestDetail;
+        }
+
+        /**
+         * @param requestDetail the request detail policy to set
+         */
+        public void setRequestDetail(ApiErrorRenderer.RequestDetailPolicy requestDetail) {
+            this.requestDetail = requestDetail;
+        }
+
+        /**
+         * @return the max message length
+         */
+        public int getMaxMessageLength() {
+            return maxMessageLength;
+        }
+
+        /**
+         * @param maxMessageLength the max message length to set
+         */
+        public void setMaxMessageLength(int maxMessageLength) {
+            this.maxMessageLength = maxMessageLength;
+        }
+
+        /**
+         * @return the max details
+         */
+        public int getMaxDetails() {
+            return maxDetails;
+        }
+
+        /**
+         * @param maxDetails the max details to set
+         */
+        public void setMaxDetails(int maxDetails) {
+            this.maxDetails = maxDetails;
+        }
+
+        /**
+         * @return the max detail length
+         */
+        public int getMaxDetailLength() {
+            return maxDetailLength;
+        }
+
+        /**
+         * @param maxDetailLength the max detail length to set
+         */
+        public void setMaxDetailLength(int maxDetailLength) {
+            this.maxDetailLength = maxDetailLength;
+        }
+    }
+
+    /**
+     * Settings of the envelope header maps ({@code nishi.requests.common.headers.*}).
+     */
+    public static class Headers {
+
+        /**
+         * Whether header names are matched ignoring case, as HTTP does.
+         */
+        private boolean caseInsensitive;
+
+        /**
+         * Whether envelope header maps are thread-safe from the start. Only needed when an
+         * envelope is filled by several threads at once.
+         */
+        private boolean concurrent;
+
+        /**
+         * Whether envelope response headers are copied onto the HTTP response.
+         */
+        private boolean propagate = true;
+
+        /**
+         * Names of the envelope headers copied onto the HTTP response. Empty propagates all.
+         */
+        private List<String> propagateAllowed = new ArrayList<>();
+
+        /**
+         * Whether propagated headers are removed from the serialized envelope.
+         */
+        private boolean stripPropagated;
+
+        /**
+         * Names of envelope-only headers that are never written in the serialized envelope.
+         */
+        private List<String> stripFromBody = new ArrayList<>();
+
+        /**
+         * @return the caseInsensitive
+         */
+        public boolean isCaseInsensitive() {
+            return caseInsensitive;
+        }
+
+        /**
+         * @param caseInsensitive the caseInsensitive to set
+         */
+        public void setCaseInsensitive(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        /**
+         * @return the concurrent
+         */
+        public boolean isConcurrent() {
+            return concurrent;
+        }
+
+        /**
+         * @param concurrent the concurrent to set
+         */
+        public void setConcurrent(boolean concurrent) {
+            this.concurrent = concurrent;
+        }
+
+        /**
+         * @return the propagate
+         */
+        public boolean isPropagate() {
+            return propagate;
+        }
+
+        /**
+         * @param propagate the propagate to set
+         */
+        public void setPropagate(boolean propagate) {
+            this.propagate = propagate;
+        }
+
+        /**
+         * @return the propagateAllowed
+         */
+        public List<String> getPropagateAllowed() {
+            return propagateAllowed;
+        }
+
+        /**
+         * @param propagateAllowed the propagateAllowed to set
+         */
+        public void setPropagateAllowed(List<String> propagateAllowed) {
+            this.propagateAllowed = propagateAllowed;
+        }
+
+        /**
+         * @return the stripPropagated
+         */
+        public boolean isStripPropagated() {
+            return stripPropagated;
+        }
+
+        /**
+         * @param stripPropagated the stripPropagated to set
+         */
+        public void setStripPropagated(boolean stripPropagated) {
+            this.stripPropagated = stripPropagated;
+        }
+
+        /**
+         * @return the stripFromBody
+         */
+        public List<String> getStripFromBody() {
+            return stripFromBody;
+        }
+
+        /**
+         * @param stripFromBody the stripFromBody to set
+         */
+        public void setStripFromBody(List<String> stripFromBody) {
+            this.stripFromBody = stripFromBody;
+        }
+    }
+
+    /**
+     * Settings of envelope recycling ({@code nishi.requests.common.pool.*}).
+     */
+    public static class Pool {
+
+        /**
+         * Whether response envelopes of pooled classes are recycled after the response is
+         * written.
+         */
+        private boolean enabled;
+
+        /**
+         * Number of pool stripes; 0 uses the number of processors.
+         */
+        private int stripes;
+
+        /**
+         * Number of envelopes retained per stripe.
+         */
+        private int slotsPerStripe = 8;
+
+        /**
+         * Whether acquisitions are tracked and envelopes not released by the end of their
+         * request are reported. Development only.
+         */
+        private boolean leakDetection;
+
+        /**
+         * @return the enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled the enabled to set
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return the stripes
+         */
+        public int getStripes() {
+            return stripes;
+        }
+
+        /**
+         * @param stripes the stripes to set
+         */
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        /**
+         * @return the slotsPerStripe
+         */
+        public int getSlotsPerStripe() {
+            return slotsPerStripe;
+        }
+
+        /**
+         * @param slotsPerStripe the slotsPerStripe to set
+         */
+        public void setSlotsPerStripe(int slotsPerStripe) {
+            this.slotsPerStripe = slotsPerStripe;
+        }
+
+        /**
+         * @return the leakDetection
+         */
+        public boolean isLeakDetection() {
+            return leakDetection;
+        }
+
+        /**
+         * @param leakDetection the leakDetection to set
+         */
+        public void setLeakDetection(boolean leakDetection) {
+            this.leakDetection = leakDetection;
+        }
+    }
+
+    /**
+     * Settings of keyset pagination ({@code nishi.requests.common.pagination.*}).
+     */
+    public static class Pagination {
+
+        /**
+         * Secret signing the cursors, at least 16 bytes. Must be shared by every instance of the
+         * service; when unset a random secret is used and cursors only work on the instance
+         * that issued them, and a warning is logged.
+         */
+        private String cursorSecret;
+
+        /**
+         * Largest page size accepted by the {@code PageableConverter}s created without their own
+         * maximum; larger requests are clamped.
+         */
+        private int maxPageSize = 100;
+
+        /**
+         * @return the cursor secret
+         */
+        public String getCursorSecret() {
+            return cursorSecret;
+        }
+
+        /**
+         * @param cursorSecret the cursor secret to set
+         */
+        public void setCursorSecret(String cursorSecret) {
+            this.cursorSecret = cursorSecret;
+        }
+
+        /**
+         * @return the max page size
+         */
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        /**
+         * @param maxPageSize the max page size to set
+         */
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+    }
+
+    /**
+     * Settings of the request context binding ({@code nishi.requests.common.context.*}).
+     */
+    public static class Context {
+
+        /**
+         * Whether a request context is bound around each servlet request.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Header carrying the trace ID; the W3C {@code traceparent} header is used when it is
+         * absent.
+         */
+        private String traceIdHeader = "X-Trace-Id";
+
+        /**
+         * Header carrying the request ID.
+         */
+        private String requestIdHeader = "X-Request-Id";
+
+        /**
+         * Whether a trace ID is generated for requests that carry none.
+         */
+        private boolean generateTraceId = true;
+
+        /**
+         * @return the enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled the enabled to set
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return the trace id header
+         */
+        public String getTraceIdHeader() {
+            return traceIdHeader;
+        }
+
+        /**
+         * @param traceIdHeader the trace id header to set
+         */
+        public void setTraceIdHeader(String traceIdHeader) {
+            this.traceIdHeader = traceIdHeader;
+        }
+
+        /**
+         * @return the request id header
+         */
+        public String getRequestIdHeader() {
+            return requestIdHeader;
+        }
+
+        /**
+         * @param requestIdHeader the request id header to set
+         */
+        public void setRequestIdHeader(String requestIdHeader) {
+            this.requestIdHeader = requestIdHeader;
+        }
+
+        /**
+         * @return the generate trace id
+         */
+        public boolean isGenerateTraceId() {
+            return generateTraceId;
+        }
+
+        /**
+         * @param generateTraceId the generate trace id to set
+         */
+        public void setGenerateTraceId(boolean generateTraceId) {
+            this.generateTraceId = generateTraceId;
+        }
+    }
+
+    /**
+     * Settings of the endpoint metrics ({@code nishi.requests.common.metrics.*}).
+     */
+    public static class Metrics {
+
+        /**
+         * Whether latency, status and exception metrics are recorded per endpoint. Off by
+         * default: Spring Boot's own {@code http.server.requests} timer already records the same
+         * dimensions.
+         */
+        private boolean enabled;
+
+        /**
+         * Whether the Micrometer timers publish histogram buckets.
+         */
+        private boolean percentileHistogram;
+
+        /**
+         * @return the enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled the enabled to set
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return the percentile histogram
+         */
+        public boolean isPercentileHistogram() {
+            return percentileHistogram;
+        }
+
+        /**
+         * @param percentileHistogram the percentile histogram to set
+         */
+        public void setPercentileHistogram(boolean percentileHistogram) {
+            this.percentileHistogram = percentileHistogram;
+        }
+    }
+
+    /**
+     * Settings of the conditional GET support ({@code nishi.requests.common.etag.*}).
+     */
+    public static class Etag {
+
+        /**
+         * Whether envelopes returned to GET and HEAD requests carry an {@code ETag}, and requests
+         * whose {@code If-None-Match} matches it are answered with 304 and no body.
+         */
+        private boolean enabled;
+
+        /**
+         * @return the enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled the enabled to set
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Settings of the envelope compression ({@code nishi.requests.common.compression.*}).
+     */
+    public static class Compression {
+
+        /**
+         * Whether envelopes are compressed according to {@code Accept-Encoding}.
+         */
+        private boolean enabled;
+
+        /**
+         * Minimum envelope {@code size} (items of the payload) for the body to be compressed.
+         */
+        private long minSize = 32;
+
+        /**
+         * Compression level of the gzip codec, from 0 to 9, or -1 for the default.
+         */
+        private int level = -1;
+
+        /**
+         * @return the enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled the enabled to set
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return the minSize
+         */
+        public long getMinSize() {
+            return minSize;
+        }
+
+        /**
+         * @param minSize the minSize to set
+         */
+        public void setMinSize(long minSize) {
+            this.minSize = minSize;
+        }
+
+        /**
+         * @return the level
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * @param level the level to set
+         */
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+
+    /**
+     * Settings of the binary envelope formats ({@code nishi.requests.common.binary.*}), used
+     * when the Jackson dataformat is on the classpath.
+     */
+    public static class Binary {
+
+        /**
+         * Whether envelopes can be exchanged as CBOR ({@code application/cbor}).
+         */
+        private boolean cbor = true;
+
+        /**
+         * Whether envelopes can be exchanged as Smile ({@code application/x-jackson-smile}).
+         */
+        private boolean smile = true;
+
+        /**
+         * @return the cbor
+         */
+        public boolean isCbor() {
+            return cbor;
+        }
+
+        /**
+         * @param cbor the cbor to set
+         */
+        public void setCbor(boolean cbor) {
+            this.cbor = cbor;
+        }
+
+        /**
+         * @return the smile
+         */
+        public boolean isSmile() {
+            return smile;
+        }
+
+        /**
+         * @param smile the smile to set
+         */
+        public void setSmile(boolean smile) {
+            this.smile = smile;
+        }
+    }
+
+    /**
+     * Settings of the Jackson integration ({@code nishi.requests.common.jackson.*}).
+     */
+    public static class Jackson {
+
+        /**
+         * Whether the {@code EnvelopeModule} serializers are registered in the application's
+         * {@code ObjectMapper}.
+         */
+        private boolean envelopeModule = true;
+
+        /**
+         * Whether envelopes with an already encoded JSON payload are written on the servlet
+         * output stream itself, so large buffers avoid heap copies.
+         */
+        private boolean directWrite = true;
+
+        /**
+         * @return the envelopeModule
+         */
+        public boolean isEnvelopeModule() {
+            return envelopeModule;
+        }
+
+        /**
+         * @param envelopeModule the envelopeModule to set
+         */
+        public void setEnvelopeModule(boolean envelopeModule) {
+            this.envelopeModule = envelopeModule;
+        }
+
+        /**
+         * @return the directWrite
+         */
+        public boolean isDirectWrite() {
+            return directWrite;
+        }
+
+        /**
+         * @param directWrite the directWrite to set
+         */
+        public void setDirectWrite(boolean directWrite) {
+            this.directWrite = directWrite;
+        }
+    }
+
+    /**
+     * Settings of the batch request execution ({@code nishi.requests.common.batch.*}).
+     */
+    public static class Batch {
+
+        /**
+         * How many items of a batch run at once.
+         */
+        private int maxConcurrency = 16;
+
+        /**
+         * How many items a batch can carry; larger batches are rejected with a 400.
+         */
+        private int maxItems = 100;
+
+        /**
+         * @return the maxConcurrency
+         */
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        /**
+         * @param maxConcurrency the maxConcurrency to set
+         */
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        /**
+         * @return the maxItems
+         */
+        public int getMaxItems() {
+            return maxItems;
+        }
+
+        /**
+         * @param maxItems the maxItems to set
+         */
+        public void setMaxItems(int maxItems) {
+            this.maxItems = maxItems;
+        }
+    }
+
+    /**
+     * Settings of the request coalescing ({@code nishi.requests.common.coalescing.*}).
+     */
+    public static class Coalescing {
+
+        /**
+         * Whether the {@code RequestCoalescer} bean only shares results between requests of the
+         * same user. Turn it off only when results do not depend on the caller.
+         */
+        private boolean perUser = true;
+
+        /**
+         * @return the perUser
+         */
+        public boolean isPerUser() {
+            return perUser;
+        }
+
+        /**
+         * @param perUser the perUser to set
+         */
+        public void setPerUser(boolean perUser) {
+            this.perUser = perUser;
+        }
+    }
+
+    /**
+     * Settings of the response cache ({@code nishi.requests.common.cache.*}).
+     */
+    public static class Cache {
+
+        /**
+         * How many responses are kept.
+         */
+        private int maxEntries = 10_000;
+
+        /**
+         * How long a response is kept.
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+
+        /**
+         * Whether payloads are serialized once, when stored, so hits skip their serialization.
+         */
+        private boolean serializePayloads = true;
+
+        /**
+         * @return the maxEntries
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries the maxEntries to set
+         */
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * @return the ttl
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        /**
+         * @param ttl the ttl to set
+         */
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * @return the serializePayloads
+         */
+        public boolean isSerializePayloads() {
+            return serializePayloads;
+        }
+
+        /**
+         * @param serializePayloads the serializePayloads to set
+         */
+        public void setSerializePayloads(boolean serializePayloads) {
+            this.serializePayloads = serializePayloads;
+        }
+    }
+
+    /**
+     * Settings of the credential resolution ({@code nishi.requests.common.credentials.*}), used
+     * when the application provides a {@code CredentialResolver}.
+     */
+    public static class Credentials {
+
+        /**
+         * Header holding the token.
+         */
+        private String header = "Authorization";
+
+        /**
+         * Prefix stripped from the header value, when present.
+         */
+        private String tokenPrefix = "Bearer ";
+
+        /**
+         * Whether resolved credentials are cached.
+         */
+        private boolean cacheEnabled = true;
+
+        /**
+         * How many credentials are kept.
+         */
+        private int maxEntries = 10_000;
+
+        /**
+         * How long a credential is kept.
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Age from which a hit reloads the credential in the background; disabled when not
+         * shorter than the ttl.
+         */
+        private Duration refreshAfter = Duration.ofMinutes(4);
+
+        /**
+         * @return the header
+         */
+        public String getHeader() {
+            return header;
+        }
+
+        /**
+         * @param header the header to set
+         */
+        public void setHeader(String header) {
+            this.header = header;
+        }
+
+        /**
+         * @return the tokenPrefix
+         */
+        public String getTokenPrefix() {
+            return tokenPrefix;
+        }
+
+        /**
+         * @param tokenPrefix the tokenPrefix to set
+         */
+        public void setTokenPrefix(String tokenPrefix) {
+            this.tokenPrefix = tokenPrefix;
+        }
+
+        /**
+         * @return the cacheEnabled
+         */
+        public boolean isCacheEnabled() {
+            return cacheEnabled;
+        }
+
+        /**
+         * @param cacheEnabled the cacheEnabled to set
+         */
+        public void setCacheEnabled(boolean cacheEnabled) {
+            this.cacheEnabled = cacheEnabled;
+        }
+
+        /**
+         * @return the maxEntries
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries the maxEntries to set
+         */
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * @return the ttl
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        /**
+         * @param ttl the ttl to set
+         */
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * @return the refreshAfter
+         */
+        public Duration getRefreshAfter() {
+            return refreshAfter;
+        }
+
+        /**
+         * @param refreshAfter the refreshAfter to set
+         */
+        public void setRefreshAfter(Duration refreshAfter) {
+            this.refreshAfter = refreshAfter;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.reactive;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.nishisan.requests.common.exception.IBasicException;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import dev.nishisan.requests.common.spring.HeaderPropagationPolicy;
+import org.reactivestreams.Publisher;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.reactive.HandlerResult;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolver;
+import org.springframework.web.reactive.result.method.annotation.ResponseBodyResultHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux counterpart of {@code ResponseStatusAdvice} and {@code ExceptionStatusAdvice}.
+ *
+ * Handles {@code @ResponseBody} results whose value is an {@link AbsResponse} or an
+ * {@link IBasicException}, directly or through a single value type such as {@link Mono}. Once
+ * the value is available, its {@code statusCode} is applied to the response, and its
+ * {@code responseHeaders} as the {@link HeaderPropagationPolicy} allows, before the body is
+ * written, without blocking.
+ *
+ * An envelope whose payload is a multi-value reactive type (e.g. a {@link Flux}) is streamed as
+ * JSON the way {@code StreamingResponseHttpMessageConverter} writes a {@link StreamingResponse}:
+ * the envelope fields first, then each item as it is emitted, then {@code size} (the number of
+ * items written), {@code totalPages} and the cursors as a trailer. Items are written as the
+ * client consumes them, so the payload is never held in memory. An envelope whose payload is a
+ * {@link Mono} has it resolved and is written as an envelope with the same {@code AbsResponse}
+ * fields and that value. Jackson would reject either value on the original class, whose payload
+ * is declared as the reactive type, so properties added by the subclass are not written in
+ * these cases.
+ *
+ * A {@link Flux} of envelopes is rejected with an {@link IllegalStateException}: it has no single
+ * status nor header set to apply. Return a {@link Mono} of an envelope, or an envelope with a
+ * {@link Flux} payload, instead.
+ *
+ * Runs ahead of the default {@link ResponseBodyResultHandler}, which handles every other result.
+ */
+public class EnvelopeResponseBodyResultHandler extends ResponseBodyResultHandler {
+
+    /**
+     * Order of the handler, just ahead of the default {@link ResponseBodyResultHandler}.
+     */
+    public static final int ORDER = 99;
+
+    /**
+     * Return type describing {@link CollectedResponse}, for {@code writeBody}.
+     */
+    private static final MethodParameter COLLECTED_PARAMETER;
+
+    static {
+        try {
+            COLLECTED_PARAMETER = new MethodParameter(EnvelopeResponseBodyResultHandler.class.getDeclaredMethod("collectedType"), -1);
+        } catch (NoSuchMethodException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final HeaderPropagationPolicy headerPropagation;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter itemWriter;
+    private int order;
+
+    public EnvelopeResponseBodyResultHandler(List<HttpMessageWriter<?>> writers, RequestedContentTypeResolver resolver,
+                                             ReactiveAdapterRegistry registry) {
+        this(writers, resolver, registry, new HeaderPropagationPolicy());
+    }
+
+    public EnvelopeResponseBodyResultHandler(List<HttpMessageWriter<?>> writers, RequestedContentTypeResolver resolver,
+                                             ReactiveAdapterRegistry registry, HeaderPropagationPolicy headerPropagation) {
+        this(writers, resolver, registry, headerPropagation, ORDER);
+    }
+
+    /**
+     * @param writers           the writers of the application
+     * @param resolver          resolves the content type of the response
+     * @param registry          the reactive adapters
+     * @param headerPropagation the headers of the envelopes to send
+     * @param order             the order of the handler, {@link #ORDER} by default
+     */
+    public EnvelopeResponseBodyResultHandler(List<HttpMessageWriter<?>> writers, RequestedContentTypeResolver resolver,
+                                             ReactiveAdapterRegistry registry, HeaderPropagationPolicy headerPropagation,
+                                             int order) {
+        super(writers, resolver, registry);
+        this.headerPropagation = headerPropagation;
+        this.objectMapper = objectMapperOf(writers);
+        this.itemWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.order = order;
+    }
+
+    private static ObjectMapper objectMapperOf(List<HttpMessageWriter<?>> writers) {
+        for (HttpMessageWriter<?> writer : writers) {
+            if (writer instanceof EncoderHttpMessageWriter<?> encoderWriter
+                    && encoderWriter.getEncoder() instanceof Jackson2JsonEncoder encoder) {
+                return encoder.getObjectMapper();
+            }
+        }
+        return new ObjectMapper();
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    @Override
+    public boolean supports(@NonNull HandlerResult result) {
+        if (!super.supports(result)) {
+            return false;
+        }
+        Class<?> type = result.getReturnType().resolve(Object.class);
+        ReactiveAdapter adapter = getAdapterRegistry().getAdapter(type);
+        if (adapter != null) {
+            if (adapter.isNoValue()) {
+                return false;
+            }
+            type = result.getReturnType().getGeneric().resolve(Object.class);
+            if (adapter.isMultiValue()) {
+                // claimed only to be rejected in handleResult
+                return AbsResponse.class.isAssignableFrom(type);
+            }
+        }
+        return AbsResponse.class.isAssignableFrom(type) || IBasicException.class.isAssignableFrom(type);
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> handleResult(@NonNull ServerWebExchange exchange, @NonNull HandlerResult result) {
+        Object returnValue = result.getReturnValue();
+        ReactiveAdapter adapter = getAdapter(result);
+        if (adapter != null && adapter.isMultiValue()) {
+            return Mono.error(new IllegalStateException("A multi-value publisher of envelopes cannot be written, "
+                    + "return a Mono of an envelope or an envelope with a Flux payload instead: "
+                    + result.getReturnTypeSource().getExecutable()));
+        }
+        Mono<?> envelope;
+        MethodParameter bodyParameter;
+        if (adapter != null && returnValue != null) {
+            envelope = Mono.from(adapter.toPublisher(returnValue));
+            bodyParameter = result.getReturnTypeSource().nested();
+        } else {
+            envelope = Mono.justOrEmpty(returnValue);
+            bodyParameter = result.getReturnTypeSource();
+        }
+        return envelope.flatMap(body -> {
+            applyStatus(body, exchange.getResponse());
+            if (body instanceof AbsResponse<?> absResponse && !(absResponse instanceof StreamingResponse)) {
+                Object payload = absResponse.getPayload();
+                ReactiveAdapter payloadAdapter = payload == null ? null : getAdapterRegistry().getAdapter(payload.getClass());
+                if (payloadAdapter != null && payloadAdapter.isMultiValue()) {
+                    return stream(absResponse, payloadAdapter.toPublisher(payload), exchange.getResponse());
+                }
+                if (payloadAdapter != null) {
+                    return resolve(absResponse, payloadAdapter.toPublisher(payload))
+                            .flatMap(resolved -> writeBody(resolved, COLLECTED_PARAMETER, exchange));
+                }
+            }
+            return writeBody(body, bodyParameter, exchange);
+        });
+    }
+
+    private void applyStatus(Object body, ServerHttpResponse response) {
+        if (body instanceof AbsResponse<?> absResponse) {
+            if (absResponse.getStatusCode() > 0) {
+                response.setStatusCode(HttpStatusCode.valueOf(absResponse.getStatusCode()));
+            }
+            headerPropagation.apply(absResponse, response.getHeaders());
+        } else if (body instanceof IBasicException exception) {
+            Integer status = exception.getStatusCode();
+            if (status != null && status > 0) {
+                response.setStatusCode(HttpStatusCode.valueOf(status));
+            }
+        }
+    }
+
+    private static Mono<CollectedResponse> resolve(AbsResponse<?> source, Publisher<?> payload) {
+        return Mono.from(payload).map(value -> (Object) value).map(List::of).defaultIfEmpty(List.of()).map(value -> {
+            CollectedResponse resolved = new CollectedResponse();
+            resolved.setSourceRequestId(source.getSourceRequestId());
+            resolved.setResponseId(source.getResponseId());
+            resolved.setTraceId(source.getTraceId());
+            resolved.setStatusCode(source.getStatusCode());
+            if (source.hasResponseHeaders()) {
+                resolved.setResponseHeaders(source.getResponseHeaders());
+            }
+            resolved.setTotalPages(source.getTotalPages());
+            resolved.setNextCursor(source.getNextCursor());
+            resolved.setPrevCursor(source.getPrevCursor());
+            resolved.setPayload(value.isEmpty() ? null : value.get(0));
+            resolved.setSize(source.getSize());
+            return resolved;
+        });
+    }
+
+    private Mono<Void> stream(AbsResponse<?> source, Publisher<?> payload, ServerHttpResponse response) {
+        if (response.getHeaders().getContentType() == null) {
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        }
+        DataBufferFactory buffers = response.bufferFactory();
+        return response.writeWith(Flux.defer(() -> {
+            PayloadWriter writer = new PayloadWriter(source);
+            return Flux.concat(Mono.fromSupplier(writer::head), Flux.from(payload).map(writer::item),
+                            Mono.fromSupplier(writer::trailer))
+                    .map(buffers::wrap)
+                    .doFinally(signal -> writer.close());
+        }));
+    }
+
+    private static CollectedResponse collectedType() {
+        return null;
+    }
+
+    /**
+     * Writes one streamed envelope with a single generator, handing out what each step wrote.
+     * Steps run one at a time, as the signals of the payload they follow.
+     */
+    private final class PayloadWriter {
+
+        private final AbsResponse<?> source;
+        private final ByteArrayBuilder buffer = new ByteArrayBuilder();
+        private final JsonGenerator generator;
+        private long size;
+
+        PayloadWriter(AbsResponse<?> source) {
+            this.source = source;
+            try {
+                this.generator = objectMapper.getFactory().createGenerator(buffer, JsonEncoding.UTF8);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            // a failed payload must not be closed as if it were complete
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        }
+
+        byte[] head() {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("sourceRequestId", source.getSourceRequestId());
+                generator.writeStringField("responseId", source.getResponseId());
+                generator.writeStringField("traceId", source.getTraceId());
+                generator.writeNumberField("statusCode", source.getStatusCode());
+                generator.writeObjectFieldStart("responseHeaders");
+                if (source.hasResponseHeaders()) {
+                    for (Map.Entry<String, String> header : source.getResponseHeaders().entrySet()) {
+                        generator.writeStringField(header.getKey(), header.getValue());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeArrayFieldStart("payload");
+                return drain();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        byte[] item(Object item) {
+            try {
+                itemWriter.writeValue(generator, item);
+                size++;
+                return drain();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        byte[] trailer() {
+            try {
+                generator.writeEndArray();
+                generator.writeNumberField("size", size);
+                generator.writeNumberField("totalPages", source.getTotalPages());
+                generator.writeStringField("nextCursor", source.getNextCursor());
+                generator.writeStringField("prevCursor", source.getPrevCursor());
+                generator.writeEndObject();
+                return drain();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private byte[] drain() throws IOException {
+            generator.flush();
+            byte[] bytes = buffer.toByteArray();
+            buffer.reset();
+            return bytes;
+        }
+
+        void close() {
+            try {
+                generator.close();
+            } catch (IOException ex) {
+                // nothing left to write to
+            }
+            buffer.release();
+        }
+    }
+
+    /**
+     * Envelope written in place of one whose payload was a {@link Mono}.
+     */
+    private static final class CollectedResponse extends AbsResponse<Object> {
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.reactive.config;
+
+import dev.nishisan.requests.common.spring.HeaderPropagationPolicy;
+import dev.nishisan.requests.common.spring.config.NishiRequestsCommonCoreConfiguration;
+import dev.nishisan.requests.common.spring.reactive.EnvelopeResponseBodyResultHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolver;
+
+/**
+ * Auto-configuration of the envelope types for WebFlux applications, enabled by the same
+ * {@code nishi.requests.common.enabled} property as the servlet one.
+ *
+ * @author Lucas Nishimura
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "nishi.requests.common.enabled", havingValue = "true")
+@Import(NishiRequestsCommonCoreConfiguration.class)
+public class NishiRequestsCommonReactiveAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EnvelopeResponseBodyResultHandler envelopeResponseBodyResultHandler(ServerCodecConfigurer serverCodecConfigurer,
+                                                                               @Qualifier("webFluxContentTypeResolver") RequestedContentTypeResolver contentTypeResolver,
+                                                                               @Qualifier("webFluxAdapterRegistry") ReactiveAdapterRegistry adapterRegistry,
+                                                                               HeaderPropagationPolicy headerPropagationPolicy) {
+        return new EnvelopeResponseBodyResultHandler(serverCodecConfigurer.getWriters(), contentTypeResolver, adapterRegistry,
+                headerPropagationPolicy);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.compression.CompressionCodec;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Response that writes its body through a {@link CompressionCodec} once {@link #enable()} was
+ * called, before anything was written. Until then it is a plain pass-through.
+ *
+ * While compressing, the content length set by the application no longer applies and is
+ * dropped; {@code Content-Encoding} and {@code Vary} are set when compression is enabled.
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final CompressionCodec codec;
+    private boolean enabled;
+    private boolean bodyUsed;
+    private CompressingOutputStream outputStream;
+    private PrintWriter writer;
+
+    CompressingResponseWrapper(HttpServletResponse response, CompressionCodec codec) {
+        super(response);
+        this.codec = codec;
+    }
+
+    /**
+     * Turns compression on, unless the body was already obtained or the response committed.
+     *
+     * @return whether the body will be compressed
+     */
+    boolean enable() {
+        if (!enabled && !bodyUsed && !isCommitted()) {
+            enabled = true;
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, codec.encoding());
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return enabled;
+    }
+
+    /**
+     * Ends the compressed data, if any was started, and releases the codec resources.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (!enabled) {
+            bodyUsed = true;
+            return super.getOutputStream();
+        }
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return compressingStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (!enabled) {
+            bodyUsed = true;
+            return super.getWriter();
+        }
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(compressingStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        if (!enabled) {
+            super.setContentLength(len);
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (!enabled) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!enabled || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!enabled || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (!enabled || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (!enabled || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    private CompressingOutputStream compressingStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    /**
+     * Servlet stream writing through the codec into the container's stream, opened on the first
+     * write so that a response without body produces no compressed data.
+     */
+    private final class CompressingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+        private OutputStream compressor;
+        private boolean finished;
+
+        private CompressingOutputStream(ServletOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            compressor().write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            compressor().write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (compressor != null && !finished) {
+                compressor.flush();
+            } else {
+                target.flush();
+            }
+        }
+
+        /**
+         * Ends the compressed data; the container's stream stays open, for the container to
+         * close.
+         */
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+
+        private void finish() throws IOException {
+            if (compressor != null && !finished) {
+                finished = true;
+                compressor.close();
+            }
+        }
+
+        private OutputStream compressor() throws IOException {
+            if (finished) {
+                throw new IOException("Compressed response already finished");
+            }
+            if (compressor == null) {
+                compressor = codec.compress(target);
+            }
+            return compressor;
+        }
+    }
+}
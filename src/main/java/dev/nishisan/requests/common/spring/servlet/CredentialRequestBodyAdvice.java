@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.uc.CredentialResolver;
+import dev.nishisan.requests.common.uc.IUserCredential;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Sets the user credential of request envelopes read from the body.
+ *
+ * A request that already has a credential keeps it. Otherwise the credential of the current
+ * {@link RequestContext} is used: the one set by Spring Security, or resolved by the
+ * {@link CredentialResolvingInterceptor}, which also covers envelopes bound from the query string
+ * and path. Without a context, the token of the configured header, stripped of its prefix, is
+ * given to the {@link CredentialResolver} here. What the resolver throws is handled like any
+ * exception raised while reading the body.
+ */
+@RestControllerAdvice
+public class CredentialRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+    private final CredentialResolver resolver;
+    private final String header;
+    private final String tokenPrefix;
+
+    public CredentialRequestBodyAdvice(CredentialResolver resolver) {
+        this(resolver, "Authorization", "Bearer ");
+    }
+
+    /**
+     * @param resolver    resolves the credentials
+     * @param header      the header holding the token
+     * @param tokenPrefix stripped from the header value when present, e.g. {@code "Bearer "}
+     */
+    public CredentialRequestBodyAdvice(CredentialResolver resolver, String header, String tokenPrefix) {
+        this.resolver = resolver;
+        this.header = header;
+        this.tokenPrefix = tokenPrefix;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter methodParameter, @NonNull Type targetType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return IRequest.class.isAssignableFrom(methodParameter.getParameterType());
+    }
+
+    @Override
+    @NonNull
+    public Object afterBodyRead(@NonNull Object body, @NonNull HttpInputMessage inputMessage, @NonNull MethodParameter parameter,
+                                @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        if (body instanceof IRequest<?> request && request.getUserCredential() == null) {
+            RequestContext context = RequestContext.current();
+            IUserCredential<?> credential;
+            if (context != null) {
+                credential = context.getCredential();
+            } else {
+                String token = CredentialResolvingInterceptor.token(inputMessage.getHeaders().getFirst(header), tokenPrefix);
+                credential = token == null ? null : resolver.resolve(token);
+            }
+            request.setUserCredential(credential);
+        }
+        return body;
+    }
+}
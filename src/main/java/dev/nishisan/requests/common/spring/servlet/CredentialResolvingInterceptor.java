@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.request.IRequest;
+import dev.nishisan.requests.common.uc.CredentialResolver;
+import dev.nishisan.requests.common.uc.IUserCredential;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the user credential of a request before a handler method taking a request envelope
+ * runs, and sets it on the current {@link RequestContext}.
+ *
+ * Envelopes take the credential of the context when they are created, so every envelope the
+ * handler receives gets it, whether it is read from the body or bound from the query string and
+ * path. A context that already has a credential, e.g. one set by Spring Security, keeps it;
+ * otherwise the token of the configured header, stripped of its prefix, is given to the
+ * {@link CredentialResolver}. Handlers without envelope parameters never pay for it; whether a
+ * handler has one is checked once per method. What the resolver throws is handled like any
+ * exception raised by the handler.
+ */
+public class CredentialResolvingInterceptor implements HandlerInterceptor {
+
+    private final CredentialResolver resolver;
+    private final String header;
+    private final String tokenPrefix;
+    private final Map<Method, Boolean> takesEnvelope = new ConcurrentHashMap<>();
+
+    public CredentialResolvingInterceptor(CredentialResolver resolver) {
+        this(resolver, "Authorization", "Bearer ");
+    }
+
+    /**
+     * @param resolver    resolves the credentials
+     * @param header      the header holding the token
+     * @param tokenPrefix stripped from the header value when present, e.g. {@code "Bearer "}
+     */
+    public CredentialResolvingInterceptor(CredentialResolver resolver, String header, String tokenPrefix) {
+        this.resolver = resolver;
+        this.header = header;
+        this.tokenPrefix = tokenPrefix;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+        if (handler instanceof HandlerMethod method && takesEnvelope.computeIfAbsent(method.getMethod(), k -> takesEnvelope(method))) {
+            RequestContext context = RequestContext.current();
+            if (context != null && context.getCredential() == null) {
+                String token = token(request.getHeader(header), tokenPrefix);
+                IUserCredential<?> credential = token == null ? null : resolver.resolve(token);
+                if (credential != null) {
+                    context.setCredential(credential);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean takesEnvelope(HandlerMethod method) {
+        for (MethodParameter parameter : method.getMethodParameters()) {
+            if (IRequest.class.isAssignableFrom(parameter.getParameterType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value       the value of the token header, may be null
+     * @param tokenPrefix stripped from the value when present, may be null
+     * @return the token, or null when there is none
+     */
+    static String token(String value, String tokenPrefix) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        if (tokenPrefix != null && !tokenPrefix.isEmpty() && value.regionMatches(true, 0, tokenPrefix, 0, tokenPrefix.length())) {
+            value = value.substring(tokenPrefix.length()).trim();
+        }
+        return value.isEmpty() ? null : value;
+    }
+}
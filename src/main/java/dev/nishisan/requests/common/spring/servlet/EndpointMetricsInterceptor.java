@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.metrics.EndpointMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records every request handled by a controller method into an {@link EndpointMetrics}.
+ *
+ * Recording happens once the request is complete, after {@link ResponseStatusAdvice} or
+ * {@link ExceptionStatusAdvice} have applied the envelope status and the body has been
+ * written, so the latency includes serialization and the status is the one sent. The
+ * exception is the one the handler threw, whether an exception handler turned it into a
+ * response or not. Async requests are timed from the first dispatch to the last.
+ *
+ * Endpoints are named {@code ControllerSimpleName#method}.
+ */
+public class EndpointMetricsInterceptor implements HandlerInterceptor {
+
+    /**
+     * Request attribute holding the start time, in nanoseconds.
+     */
+    public static final String START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+
+    private final EndpointMetrics metrics;
+    private final Map<Method, String> endpointNames = new ConcurrentHashMap<>();
+
+    public EndpointMetricsInterceptor(EndpointMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+        if (handler instanceof HandlerMethod && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        Throwable failure = ex != null ? ex : (Throwable) request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+        metrics.record(endpointName(handlerMethod), response.getStatus(), failure == null ? null : failure.getClass(), duration);
+    }
+
+    private String endpointName(HandlerMethod handlerMethod) {
+        Method method = handlerMethod.getMethod();
+        String name = endpointNames.get(method);
+        if (name == null) {
+            name = endpointNames.computeIfAbsent(method,
+                    m -> handlerMethod.getBeanType().getSimpleName() + "#" + m.getName());
+        }
+        return name;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.RawJson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Computes the weak entity tag of an envelope, used by {@link ResponseStatusAdvice} to answer
+ * conditional GET requests.
+ *
+ * The tag is the {@link AbsResponse#entityVersion()} of the envelope when it has one. Otherwise
+ * the JSON of the payload goes through a 64-bit FNV-1a hash, and {@code totalPages} and the
+ * cursors are mixed in. Fields that change on every response ({@code responseId},
+ * {@code traceId}) are left out, which is why the tag is weak.
+ *
+ * When the JSON is already at hand, a {@link RawJson} payload or one attached with
+ * {@link AbsResponse#attachSerializedPayload}, its bytes are hashed as they are. Any other payload
+ * is serialized with the application's {@link ObjectMapper} into the hash, without buffering the
+ * bytes, but still once more than the body is when the tag does not match, since the header
+ * has to be known before the body is written. Envelopes of hot endpoints should therefore carry
+ * an {@code entityVersion()} (a row version, an update timestamp), which costs nothing to compare.
+ */
+public class EntityTagResolver {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ObjectWriter writer;
+
+    public EntityTagResolver(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer();
+    }
+
+    /**
+     * @param response the envelope about to be written
+     * @return the weak entity tag of the envelope, or null when it has neither version nor
+     * payload, or the payload cannot be serialized
+     */
+    public String resolve(AbsResponse<?> response) {
+        String version = response.entityVersion();
+        if (version != null) {
+            return "W/\"" + version.replace("\"", "") + "\"";
+        }
+        Object payload = response.getPayload();
+        if (payload == null) {
+            return null;
+        }
+        RawJson raw = payload instanceof RawJson json ? json : response.serializedPayload();
+        HashingOutputStream hash = new HashingOutputStream();
+        try {
+            if (raw != null) {
+                raw.writeTo(hash);
+            } else {
+                writer.writeValue(hash, payload);
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        hash.update(response.getTotalPages());
+        hash.update(response.getNextCursor());
+        hash.update(response.getPrevCursor());
+        return "W/\"" + Long.toHexString(hash.value) + "\"";
+    }
+
+    /**
+     * Sink hashing the bytes written to it, so the serialized payload is never held in memory.
+     */
+    private static final class HashingOutputStream extends OutputStream {
+
+        private long value = FNV_OFFSET_BASIS;
+
+        @Override
+        public void write(int b) {
+            value = (value ^ (b & 0xff)) * FNV_PRIME;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            long h = value;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                h = (h ^ (bytes[i] & 0xff)) * FNV_PRIME;
+            }
+            value = h;
+        }
+
+        void update(long number) {
+            for (int shift = 0; shift < 64; shift += 8) {
+                write((int) (number >>> shift));
+            }
+        }
+
+        void update(String text) {
+            if (text == null) {
+                write(0);
+                return;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                write(c >>> 8);
+                write(c);
+            }
+            write(0);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.pool.EnvelopePools;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Gives pooled response envelopes back to their {@link EnvelopePools} pool once the request is
+ * complete, i.e. after {@link ResponseStatusAdvice} has seen the body and the message converter
+ * has serialized it.
+ *
+ * The advice marks the envelope with the {@link #RECYCLE_ATTRIBUTE} request attribute; only
+ * envelopes whose class has a pool are marked. With leak detection enabled, envelopes acquired
+ * by the request thread, or by threads that have ended, and not released by then are reported
+ * as leaks, see {@link dev.nishisan.requests.common.pool.StripedPool}.
+ *
+ * Envelopes are handed back with {@link EnvelopePools#recycle(Object)}. Without leak detection
+ * every envelope of a pooled class returned by a handler is recycled, so handlers must not return
+ * instances that are kept elsewhere (e.g. a cached response). With leak detection only envelopes
+ * acquired from the pool are, so the fresh copies returned by {@code RequestCoalescer} and
+ * {@code ResponseCache} are simply left to the GC.
+ */
+public class EnvelopeRecyclingInterceptor implements HandlerInterceptor {
+
+    /**
+     * Request attribute holding the envelope to recycle.
+     */
+    public static final String RECYCLE_ATTRIBUTE = EnvelopeRecyclingInterceptor.class.getName() + ".envelope";
+
+    private final EnvelopePools pools;
+
+    public EnvelopeRecyclingInterceptor(EnvelopePools pools) {
+        this.pools = pools;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        Object envelope = request.getAttribute(RECYCLE_ATTRIBUTE);
+        try {
+            if (envelope != null) {
+                request.removeAttribute(RECYCLE_ATTRIBUTE);
+                pools.recycle(envelope);
+            }
+        } finally {
+            pools.detectLeaks();
+        }
+    }
+}
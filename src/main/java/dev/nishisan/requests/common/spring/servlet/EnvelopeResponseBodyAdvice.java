@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.exception.BasicException;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single {@link ResponseBodyAdvice} applying, in one pass, what {@link ResponseStatusAdvice},
+ * {@link ExceptionStatusAdvice} and {@link ResponseCompressionAdvice} apply separately.
+ *
+ * Spring asks every advice whether it supports a return type on every response. This one
+ * resolves, once per handler method, whether the method produces envelopes, exceptions, both
+ * (a method declared as {@code Object}) or neither, so the question costs a map lookup and an
+ * endpoint that never returns an envelope is not touched afterwards. The work itself is delegated
+ * to the wrapped advices, which are not registered on their own.
+ */
+@RestControllerAdvice
+public class EnvelopeResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    /**
+     * What a handler method produces, as far as this advice is concerned.
+     */
+    enum Handler {
+        NONE, ENVELOPE, EXCEPTION, ANY;
+
+        static Handler of(MethodParameter returnType) {
+            boolean envelope = EnvelopeReturnTypes.mayReturn(returnType, AbsResponse.class);
+            boolean exception = EnvelopeReturnTypes.mayReturn(returnType, BasicException.class);
+            if (envelope && exception) {
+                return ANY;
+            }
+            return envelope ? ENVELOPE : exception ? EXCEPTION : NONE;
+        }
+    }
+
+    private final ResponseStatusAdvice statusAdvice;
+    private final ExceptionStatusAdvice exceptionAdvice;
+    private final ResponseCompressionAdvice compressionAdvice;
+    private final Map<Object, Handler> handlers = new ConcurrentHashMap<>();
+
+    public EnvelopeResponseBodyAdvice(ResponseStatusAdvice statusAdvice) {
+        this(statusAdvice, null);
+    }
+
+    /**
+     * @param statusAdvice applies status, headers, trace id, pooling and ETag to envelopes
+     * @param compressionAdvice decides on compression, or null when compression is disabled
+     */
+    public EnvelopeResponseBodyAdvice(ResponseStatusAdvice statusAdvice, ResponseCompressionAdvice compressionAdvice) {
+        this.statusAdvice = statusAdvice;
+        this.exceptionAdvice = new ExceptionStatusAdvice();
+        this.compressionAdvice = compressionAdvice;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return handler(returnType) != Handler.NONE;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType selectedContentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        if (body instanceof AbsResponse<?>) {
+            Object written = statusAdvice.beforeBodyWrite(body, returnType, selectedContentType, selectedConverterType, request, response);
+            if (written != null && compressionAdvice != null && !(body instanceof StreamingResponse)) {
+                compressionAdvice.beforeBodyWrite(body, returnType, selectedContentType, selectedConverterType, request, response);
+            }
+            return written;
+        }
+        if (body instanceof BasicException) {
+            return exceptionAdvice.beforeBodyWrite(body, returnType, selectedContentType, selectedConverterType, request, response);
+        }
+        return body;
+    }
+
+    Handler handler(MethodParameter returnType) {
+        Object key = EnvelopeReturnTypes.key(returnType);
+        Handler handler = handlers.get(key);
+        if (handler == null) {
+            handler = handlers.computeIfAbsent(key, k -> Handler.of(returnType));
+        }
+        return handler;
+    }
+}
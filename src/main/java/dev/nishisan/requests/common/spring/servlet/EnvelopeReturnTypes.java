@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.lang.reflect.Executable;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves the type of the body a controller method produces, looking through the async return
+ * types Spring MVC completes on a later dispatch: {@link CompletionStage}, {@link Future},
+ * {@link DeferredResult}, {@link Callable} and {@link WebAsyncTask}. A method declared as
+ * {@code CompletableFuture<ProductListResponse>} produces a {@code ProductListResponse}.
+ *
+ * The type is resolved once per method and controller class. On the async dispatch Spring hands
+ * the advices a parameter typed after the value itself, so the cache is keyed on the method rather
+ * than on the parameter, which would keep the first value reachable.
+ */
+final class EnvelopeReturnTypes {
+
+    private static final Class<?>[] ASYNC_TYPES = {
+            CompletionStage.class, Future.class, DeferredResult.class, Callable.class, WebAsyncTask.class
+    };
+
+    private static final Map<Object, Class<?>> BODY_TYPES = new ConcurrentHashMap<>();
+
+    private EnvelopeReturnTypes() {
+    }
+
+    /**
+     * @param returnType the return type handed to a {@code ResponseBodyAdvice}
+     * @param type the body type looked for
+     * @return true when the method may produce a body of the given type: its declared body type
+     * is a subtype of it, or a supertype such as {@code Object} that is only known from the value
+     */
+    static boolean mayReturn(MethodParameter returnType, Class<?> type) {
+        Class<?> bodyType = bodyType(returnType);
+        return type.isAssignableFrom(bodyType) || bodyType.isAssignableFrom(type);
+    }
+
+    /**
+     * @param returnType the return type handed to a {@code ResponseBodyAdvice}
+     * @return the declared type of the body, {@code Object} when it cannot be resolved
+     */
+    static Class<?> bodyType(MethodParameter returnType) {
+        Object key = key(returnType);
+        Class<?> bodyType = BODY_TYPES.get(key);
+        if (bodyType == null) {
+            bodyType = BODY_TYPES.computeIfAbsent(key, k -> resolve(returnType));
+        }
+        return bodyType;
+    }
+
+    /**
+     * @param returnType the return type handed to a {@code ResponseBodyAdvice}
+     * @return a key identifying the method and controller class, equal on the first dispatch and
+     * on the async one
+     */
+    static Object key(MethodParameter returnType) {
+        Executable executable = returnType.getExecutable();
+        return new Key(executable, returnType.getParameterIndex(), returnType.getContainingClass());
+    }
+
+    private static Class<?> resolve(MethodParameter returnType) {
+        ResolvableType type = ResolvableType.forMethodParameter(returnType);
+        Class<?> wrapper;
+        while ((wrapper = asyncType(type.resolve())) != null) {
+            type = type.as(wrapper).getGeneric(0);
+        }
+        return type.resolve(Object.class);
+    }
+
+    private static Class<?> asyncType(Class<?> type) {
+        if (type != null) {
+            for (Class<?> asyncType : ASYNC_TYPES) {
+                if (asyncType.isAssignableFrom(type)) {
+                    return asyncType;
+                }
+            }
+        }
+        return null;
+    }
+
+    private record Key(Executable executable, int index, Class<?> containingClass) {
+    }
+}
@@ -45,7 +45,7 @@ public class ExceptionStatusAdvice implements ResponseBodyAdvice<Object> {
 
     @Override
     public boolean supports(@NonNull MethodParameter returnType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
-        return BasicException.class.isAssignableFrom(returnType.getParameterType());
+        return EnvelopeReturnTypes.mayReturn(returnType, BasicException.class);
     }
 
     /**
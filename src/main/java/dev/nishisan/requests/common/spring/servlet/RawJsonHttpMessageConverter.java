@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.RawJson;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.TypeUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Writes envelopes whose payload is already encoded JSON ({@link RawJson}, as the payload or
+ * attached with {@link AbsResponse#attachSerializedPayload}) on the servlet output stream
+ * itself.
+ *
+ * The Jackson converter hands the generator a wrapper of the output stream, which hides the
+ * container's {@code write(ByteBuffer)}; this one gives it the stream, so large direct or mapped
+ * payloads go to the socket without a heap copy. The envelope fields are still written by the
+ * application's {@link ObjectMapper}, through the declared type, {@code customizeWriter} and the
+ * JSON prefix as the Jackson converter would. Other envelopes are written by the Jackson
+ * converter itself, with the same mapper, and so are raw envelopes it has to transform: a
+ * {@link MappingJacksonValue} (a {@code @JsonView} or filters), a negotiated charset other than
+ * UTF-8, or a type with its own registered mappers.
+ *
+ * Registered ahead of the default Jackson converter by the auto-configuration; it never reads.
+ */
+public class RawJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public RawJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    public boolean canRead(@NonNull Class<?> clazz, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(@NonNull Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@NonNull Class<?> clazz, @Nullable MediaType mediaType) {
+        return AbsResponse.class.isAssignableFrom(clazz) && !StreamingResponse.class.isAssignableFrom(clazz)
+                && super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull Object object, @Nullable Type type, @NonNull HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        if (!(object instanceof AbsResponse<?> response) || !hasRawPayload(response)
+                || getJsonEncoding(contentType) != JsonEncoding.UTF8
+                || !getObjectMappersForType(response.getClass()).isEmpty()) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        JavaType javaType = type != null && TypeUtils.isAssignable(type, response.getClass()) ? getJavaType(type, null) : null;
+        ObjectWriter writer = customizeWriter(getObjectMapper().writer(), javaType, contentType);
+        JsonGenerator generator = getObjectMapper().getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (generator) {
+            writePrefix(generator, response);
+            writer.writeValue(generator, response);
+            writeSuffix(generator, response);
+        } catch (JsonProcessingException ex) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    private static boolean hasRawPayload(AbsResponse<?> response) {
+        return response.serializedPayload() != null || response.getPayload() instanceof RawJson;
+    }
+}
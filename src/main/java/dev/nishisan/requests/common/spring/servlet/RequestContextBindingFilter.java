@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.response.id.ResponseIds;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds a {@link RequestContext} built from the incoming headers around the rest of the filter
+ * chain, so envelopes created while handling the request get its trace and request IDs.
+ *
+ * The trace ID is read from the configured trace header, then from the W3C {@code traceparent}
+ * header; when both are absent a new one is generated with the configured
+ * {@link ResponseIds} generator, unless disabled. The context is kept as a request attribute
+ * and bound again on async and error dispatches, so they share the same IDs.
+ *
+ * Runs ahead of Spring Security, whose filters can then set the credential on the context.
+ */
+public class RequestContextBindingFilter extends OncePerRequestFilter implements Ordered {
+
+    /**
+     * Request attribute holding the bound context.
+     */
+    public static final String CONTEXT_ATTRIBUTE = RequestContextBindingFilter.class.getName() + ".context";
+
+    /**
+     * Order of the filter, ahead of Spring Security's filter chain.
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    private static final String TRACEPARENT = "traceparent";
+
+    private final String traceIdHeader;
+    private final String requestIdHeader;
+    private final boolean generateTraceId;
+
+    public RequestContextBindingFilter(String traceIdHeader, String requestIdHeader, boolean generateTraceId) {
+        this.traceIdHeader = traceIdHeader;
+        this.requestIdHeader = requestIdHeader;
+        this.generateTraceId = generateTraceId;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RequestContext context = (RequestContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context == null) {
+            context = new RequestContext(traceId(request), request.getHeader(requestIdHeader));
+            request.setAttribute(CONTEXT_ATTRIBUTE, context);
+        }
+        try {
+            RequestContext.<Void, Exception>call(context, () -> {
+                filterChain.doFilter(request, response);
+                return null;
+            });
+        } catch (IOException | ServletException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ServletException(ex);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilterErrorDispatch() {
+        return false;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private String traceId(HttpServletRequest request) {
+        String traceId = request.getHeader(traceIdHeader);
+        if (traceId != null && !traceId.isEmpty()) {
+            return traceId;
+        }
+        String traceparent = request.getHeader(TRACEPARENT);
+        // version-traceid-parentid-flags, e.g. 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01
+        if (traceparent != null && traceparent.length() >= 55 && traceparent.charAt(2) == '-' && traceparent.charAt(35) == '-') {
+            return traceparent.substring(3, 35);
+        }
+        return generateTraceId ? ResponseIds.nextId() : null;
+    }
+}
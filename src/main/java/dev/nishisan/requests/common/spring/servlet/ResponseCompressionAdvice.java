@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Decides, before serialization starts, whether an envelope is compressed.
+ *
+ * The {@code size} of the envelope (the number of items of a list, map or page payload) is
+ * taken as a hint of the size of the body: envelopes with at least {@code minSize} items are
+ * compressed with the codec negotiated by {@link ResponseCompressionFilter}, smaller ones are
+ * written as they are. A {@link StreamingResponse} has no size until it is written and is never
+ * compressed.
+ */
+@RestControllerAdvice
+public class ResponseCompressionAdvice implements ResponseBodyAdvice<Object> {
+
+    private final long minSize;
+
+    public ResponseCompressionAdvice(long minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return EnvelopeReturnTypes.mayReturn(returnType, AbsResponse.class)
+                && !StreamingResponse.class.isAssignableFrom(EnvelopeReturnTypes.bodyType(returnType));
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType selectedContentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        if (body instanceof AbsResponse<?> absResponse && !(body instanceof StreamingResponse)
+                && absResponse.getSize() >= minSize && request instanceof ServletServerHttpRequest servletRequest) {
+            ResponseCompressionFilter.enable(servletRequest.getServletRequest());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import dev.nishisan.requests.common.compression.CompressionCodec;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Negotiates a {@link CompressionCodec} from {@code Accept-Encoding} and gives the request a
+ * response able to compress its body. The body is only compressed once
+ * {@link ResponseCompressionAdvice} enabled it for an envelope large enough; every other
+ * response goes through unchanged.
+ *
+ * Codecs are tried in the order given, the first one the client accepts (with a non-zero
+ * {@code q}, or through {@code *}) wins. Requests accepting none of them are not wrapped. The
+ * compressed data is ended once the request is handled, after its async dispatch if it has one.
+ */
+public class ResponseCompressionFilter extends OncePerRequestFilter implements Ordered {
+
+    /**
+     * Request attribute holding the compressing response.
+     */
+    public static final String RESPONSE_ATTRIBUTE = ResponseCompressionFilter.class.getName() + ".response";
+
+    /**
+     * Order of the filter, right after {@link RequestContextBindingFilter}.
+     */
+    public static final int ORDER = RequestContextBindingFilter.ORDER + 10;
+
+    private final CompressionCodec[] codecs;
+
+    public ResponseCompressionFilter(List<? extends CompressionCodec> codecs) {
+        this.codecs = codecs.toArray(new CompressionCodec[0]);
+    }
+
+    /**
+     * Turns compression on for the body of the current response, if the request was wrapped by
+     * this filter and nothing was written yet.
+     *
+     * @param request the current request
+     * @return whether the body will be compressed
+     */
+    public static boolean enable(HttpServletRequest request) {
+        Object response = request.getAttribute(RESPONSE_ATTRIBUTE);
+        return response instanceof CompressingResponseWrapper wrapper && wrapper.enable();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        CompressingResponseWrapper wrapper = (CompressingResponseWrapper) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (wrapper == null) {
+            CompressionCodec codec = negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (codec == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            wrapper = new CompressingResponseWrapper(response, codec);
+            request.setAttribute(RESPONSE_ATTRIBUTE, wrapper);
+        }
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                wrapper.finish();
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private CompressionCodec negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        String accepted = acceptEncoding.toLowerCase(Locale.ROOT);
+        for (CompressionCodec codec : codecs) {
+            Boolean accepts = accepts(accepted, codec.encoding());
+            if (accepts == null ? Boolean.TRUE.equals(accepts(accepted, "*")) : accepts) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the coding is listed with a non-zero quality, e.g. {@code gzip} or
+     * {@code gzip;q=0.8} but not {@code gzip;q=0}; null when it is not listed.
+     */
+    private static Boolean accepts(String acceptEncoding, String encoding) {
+        int start = 0;
+        int length = acceptEncoding.length();
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int parameters = acceptEncoding.indexOf(';', start);
+            int nameEnd = parameters >= 0 && parameters < end ? parameters : end;
+            if (acceptEncoding.substring(start, nameEnd).trim().equals(encoding)) {
+                return nameEnd == end || !isZeroQuality(acceptEncoding.substring(nameEnd + 1, end));
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    private static boolean isZeroQuality(String parameters) {
+        String q = parameters.trim();
+        if (!q.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(q.substring(2).trim()) == 0;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -16,17 +16,27 @@
  */
 package dev.nishisan.requests.common.spring.servlet;
 
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.pool.EnvelopePools;
 import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import dev.nishisan.requests.common.spring.HeaderPropagationPolicy;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * A controller advice that provides behavior for modifying HTTP response statuses dynamically.
  *
@@ -38,13 +48,50 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
  * The implementation is designed to work with response objects that are instances of
  * {@code AbsResponse} or {@code BasicException}, where it dynamically applies the corresponding
  * HTTP status code to the {@code HttpServletResponse}.
+ *
+ * When an {@link EnvelopePools} registry is given, envelopes whose class is pooled are marked
+ * for recycling by {@link EnvelopeRecyclingInterceptor} once the response is written.
+ *
+ * Envelope headers are copied onto the HTTP response according to a
+ * {@link HeaderPropagationPolicy}; by default all of them are propagated.
+ *
+ * When an {@link EntityTagResolver} is given, envelopes returned with status 200 to GET and HEAD
+ * requests carry an {@code ETag}, and a request whose {@code If-None-Match} matches it is answered
+ * with 304 and no body: the envelope is not serialized at all.
+ *
+ * Methods returning an envelope asynchronously ({@code CompletableFuture}, {@code DeferredResult},
+ * {@code Callable}, ...) are handled the same way once the value is available, see
+ * {@link EnvelopeReturnTypes}.
  */
 @RestControllerAdvice
 public class ResponseStatusAdvice implements ResponseBodyAdvice<Object> {
 
+    private final EnvelopePools envelopePools;
+    private final HeaderPropagationPolicy headerPropagation;
+    private final EntityTagResolver entityTags;
+
+    public ResponseStatusAdvice() {
+        this(null);
+    }
+
+    public ResponseStatusAdvice(EnvelopePools envelopePools) {
+        this(envelopePools, new HeaderPropagationPolicy());
+    }
+
+    public ResponseStatusAdvice(EnvelopePools envelopePools, HeaderPropagationPolicy headerPropagation) {
+        this(envelopePools, headerPropagation, null);
+    }
+
+    public ResponseStatusAdvice(EnvelopePools envelopePools, HeaderPropagationPolicy headerPropagation,
+                                EntityTagResolver entityTags) {
+        this.envelopePools = envelopePools;
+        this.headerPropagation = headerPropagation;
+        this.entityTags = entityTags;
+    }
+
     @Override
     public boolean supports(@NonNull MethodParameter returnType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
-        return AbsResponse.class.isAssignableFrom(returnType.getParameterType());
+        return EnvelopeReturnTypes.mayReturn(returnType, AbsResponse.class);
     }
 
     /**
@@ -52,7 +99,8 @@ public class ResponseStatusAdvice implements ResponseBodyAdvice<Object> {
      *
      * This method evaluates the response body to determine if it is an instance
      * of AbsResponse or BasicException. If so, it extracts the HTTP status code
-     * from the response object and sets it in the HttpServletResponse when applicable.
+     * from the response object and sets it in the HttpServletResponse when applicable, and copies
+     * the envelope headers allowed by the {@link HeaderPropagationPolicy}.
      *
      * @param body the response body object to be written
      * @param returnType the method return type of the controller
@@ -60,7 +108,8 @@ public class ResponseStatusAdvice implements ResponseBodyAdvice<Object> {
      * @param selectedConverterType the converter type chosen to serialize the response
      * @param request the server-side HTTP request
      * @param response the server-side HTTP response
-     * @return the processed response body, potentially modified but typically returned unaltered
+     * @return the processed response body, potentially modified but typically returned unaltered,
+     * or null when the request is answered with 304
      */
     @Override
     public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType selectedContentType,
@@ -72,7 +121,46 @@ public class ResponseStatusAdvice implements ResponseBodyAdvice<Object> {
                     ((ServletServerHttpResponse) response).getServletResponse().setStatus(absResponse.getStatusCode());
                 }
             }
+            headerPropagation.apply(absResponse, response.getHeaders());
+            if (absResponse.getTraceId() == null) {
+                // recycled envelopes are not created within the request
+                absResponse.setTraceId(RequestContext.currentTraceId());
+            }
+            if (envelopePools != null && request instanceof ServletServerHttpRequest servletRequest
+                    && envelopePools.isPooled(absResponse)) {
+                servletRequest.getServletRequest().setAttribute(EnvelopeRecyclingInterceptor.RECYCLE_ATTRIBUTE, absResponse);
+            }
+            if (entityTags != null && isNotModified(absResponse, request, response)) {
+                return null;
+            }
         }
         return body;
     }
+
+    /**
+     * Sets the {@code ETag} of the envelope and checks the request preconditions against it. The
+     * pending headers are written right away when the body is skipped, as nothing else would.
+     */
+    private boolean isNotModified(AbsResponse<?> body, ServerHttpRequest request, ServerHttpResponse response) {
+        if ((body.getStatusCode() != 0 && body.getStatusCode() != 200) || body instanceof StreamingResponse
+                || (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD)
+                || !(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return false;
+        }
+        String entityTag = entityTags.resolve(body);
+        if (entityTag == null) {
+            return false;
+        }
+        ServletWebRequest webRequest = new ServletWebRequest(servletRequest.getServletRequest(), servletResponse.getServletResponse());
+        if (!webRequest.checkNotModified(entityTag)) {
+            return false;
+        }
+        try {
+            response.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return true;
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.spring.servlet;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes a {@link StreamingResponse} as JSON without materializing its payload.
+ *
+ * The envelope fields are written first, then each item of the payload as it is produced, then
+ * {@code size} (the number of items written), {@code totalPages} and the cursors as a trailer.
+ * Items go straight to the servlet output stream, so a slow client blocks the producer instead
+ * of letting items accumulate. The field names match what Jackson produces for a regular
+ * {@code AbsResponse}, so clients read both the same way.
+ *
+ * Registered ahead of the default Jackson converter by the auto-configuration.
+ */
+public class StreamingResponseHttpMessageConverter extends AbstractHttpMessageConverter<StreamingResponse<?>> {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter itemWriter;
+
+    public StreamingResponseHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        this.itemWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return StreamingResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(@NonNull Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected StreamingResponse<?> readInternal(@NonNull Class<? extends StreamingResponse<?>> clazz, @NonNull HttpInputMessage inputMessage)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("StreamingResponse is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull StreamingResponse<?> response, @NonNull HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        try (response) {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+            // the container closes the stream; an interrupted payload must not be closed as if complete
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            try (generator) {
+                generator.writeStartObject();
+                generator.writeStringField("sourceRequestId", response.getSourceRequestId());
+                generator.writeStringField("responseId", response.getResponseId());
+                generator.writeStringField("traceId", response.getTraceId());
+                generator.writeNumberField("statusCode", response.getStatusCode());
+                generator.writeObjectFieldStart("responseHeaders");
+                for (Map.Entry<String, String> header : response.getResponseHeaders().entrySet()) {
+                    generator.writeStringField(header.getKey(), header.getValue());
+                }
+                generator.writeEndObject();
+
+                generator.writeArrayFieldStart("payload");
+                long size = 0;
+                Iterator<?> items = response.getPayload();
+                if (items != null) {
+                    while (items.hasNext()) {
+                        itemWriter.writeValue(generator, items.next());
+                        size++;
+                    }
+                }
+                generator.writeEndArray();
+
+                response.setSize(size);
+                generator.writeNumberField("size", size);
+                generator.writeNumberField("totalPages", response.getTotalPages());
+                generator.writeStringField("nextCursor", response.getNextCursor());
+                generator.writeStringField("prevCursor", response.getPrevCursor());
+                generator.writeEndObject();
+            }
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new HttpMessageNotWritableException("Could not release the streaming payload", ex);
+        }
+    }
+}
@@ -16,12 +16,51 @@
  */
 package dev.nishisan.requests.common.spring.servlet.config;
 
-import dev.nishisan.requests.common.spring.servlet.ExceptionStatusAdvice;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.nishisan.requests.common.compression.CompressionCodec;
+import dev.nishisan.requests.common.compression.GzipCompressionCodec;
+import dev.nishisan.requests.common.metrics.EndpointMetrics;
+import dev.nishisan.requests.common.metrics.InProcessEndpointMetrics;
+import dev.nishisan.requests.common.metrics.MicrometerEndpointMetrics;
+import dev.nishisan.requests.common.pool.EnvelopePools;
+import dev.nishisan.requests.common.spring.BinaryEnvelopeHttpMessageConverter;
+import dev.nishisan.requests.common.spring.HeaderPropagationPolicy;
+import dev.nishisan.requests.common.spring.config.NishiRequestsCommonCoreConfiguration;
+import dev.nishisan.requests.common.spring.config.NishiRequestsCommonProperties;
+import dev.nishisan.requests.common.spring.servlet.EntityTagResolver;
+import dev.nishisan.requests.common.spring.servlet.CredentialRequestBodyAdvice;
+import dev.nishisan.requests.common.spring.servlet.CredentialResolvingInterceptor;
+import dev.nishisan.requests.common.spring.servlet.EnvelopeRecyclingInterceptor;
+import dev.nishisan.requests.common.spring.servlet.EndpointMetricsInterceptor;
+import dev.nishisan.requests.common.spring.servlet.EnvelopeResponseBodyAdvice;
+import dev.nishisan.requests.common.spring.servlet.RequestContextBindingFilter;
+import dev.nishisan.requests.common.spring.servlet.ResponseCompressionAdvice;
+import dev.nishisan.requests.common.spring.servlet.ResponseCompressionFilter;
 import dev.nishisan.requests.common.spring.servlet.ResponseStatusAdvice;
+import dev.nishisan.requests.common.spring.servlet.RawJsonHttpMessageConverter;
+import dev.nishisan.requests.common.spring.servlet.StreamingResponseHttpMessageConverter;
+import dev.nishisan.requests.common.uc.CachingCredentialResolver;
+import dev.nishisan.requests.common.uc.CredentialResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
 
 @Configuration
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
@@ -30,15 +69,275 @@ import org.springframework.context.annotation.Configuration;
         havingValue = "true",                    // Só ative se o valor for "true"
         matchIfMissing = false                    // ❗ ESSENCIAL: Se a propriedade não existir, considere como "true" (ativado por padrão)
 )
+@Import(NishiRequestsCommonCoreConfiguration.class)
 public class NishiRequestsCommonAutoConfiguration {
+    /**
+     * The status, exception and compression advices, dispatched from a single advice so Spring
+     * asks one of them, once per handler method, whether a response is an envelope.
+     */
     @Bean
-    public ResponseStatusAdvice responseStatusAdvice() {
-        return new ResponseStatusAdvice();
+    public EnvelopeResponseBodyAdvice envelopeResponseBodyAdvice(ObjectProvider<EnvelopePools> envelopePools,
+                                                                 HeaderPropagationPolicy headerPropagationPolicy,
+                                                                 ObjectProvider<EntityTagResolver> entityTagResolver,
+                                                                 NishiRequestsCommonProperties properties) {
+        ResponseStatusAdvice statusAdvice = new ResponseStatusAdvice(envelopePools.getIfAvailable(),
+                headerPropagationPolicy, entityTagResolver.getIfAvailable());
+        NishiRequestsCommonProperties.Compression compression = properties.getCompression();
+        return new EnvelopeResponseBodyAdvice(statusAdvice,
+                compression.isEnabled() ? new ResponseCompressionAdvice(compression.getMinSize()) : null);
     }
 
+    /**
+     * Binds a {@code RequestContext} around every request. Not named
+     * {@code requestContextFilter}, which Spring Boot already uses.
+     */
     @Bean
-    public ExceptionStatusAdvice exceptionStatusAdvice() {
-        return new ExceptionStatusAdvice();
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "nishi.requests.common.context.enabled", havingValue = "true", matchIfMissing = true)
+    public RequestContextBindingFilter requestContextBindingFilter(NishiRequestsCommonProperties properties) {
+        NishiRequestsCommonProperties.Context context = properties.getContext();
+        return new RequestContextBindingFilter(context.getTraceIdHeader(), context.getRequestIdHeader(), context.isGenerateTraceId());
+    }
+
+    @Configuration
+    @ConditionalOnClass(ObjectMapper.class)
+    public static class StreamingConfiguration {
+
+        /**
+         * Puts the {@link StreamingResponseHttpMessageConverter} ahead of the Jackson converter,
+         * which would otherwise serialize a {@code StreamingResponse} through its iterator
+         * without the {@code size} trailer.
+         */
+        @Bean
+        public WebMvcConfigurer streamingResponseConfigurer(ObjectProvider<ObjectMapper> objectMapper) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void extendMessageConverters(@NonNull List<HttpMessageConverter<?>> converters) {
+                    converters.add(0, new StreamingResponseHttpMessageConverter(objectMapper.getIfAvailable(ObjectMapper::new)));
+                }
+            };
+        }
     }
 
+    @Configuration
+    @ConditionalOnClass(ObjectMapper.class)
+    @ConditionalOnProperty(name = "nishi.requests.common.jackson.direct-write", havingValue = "true", matchIfMissing = true)
+    public static class RawJsonConfiguration {
+
+        /**
+         * Puts the {@link RawJsonHttpMessageConverter} ahead of the Jackson converter, which
+         * would write pre-encoded payloads through a wrapper of the output stream.
+         */
+        @Bean
+        public WebMvcConfigurer rawJsonConfigurer(ObjectProvider<ObjectMapper> objectMapper) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void extendMessageConverters(@NonNull List<HttpMessageConverter<?>> converters) {
+                    converters.add(0, new RawJsonHttpMessageConverter(objectMapper.getIfAvailable(ObjectMapper::new)));
+                }
+            };
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass({ObjectMapper.class, CBORFactory.class})
+    @ConditionalOnProperty(name = "nishi.requests.common.binary.cbor", havingValue = "true", matchIfMissing = true)
+    public static class CborEnvelopeConfiguration {
+
+        @Bean
+        public WebMvcConfigurer cborEnvelopeConfigurer(ObjectProvider<ObjectMapper> objectMapper) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void extendMessageConverters(@NonNull List<HttpMessageConverter<?>> converters) {
+                    addBinaryConverter(converters, new BinaryEnvelopeHttpMessageConverter(
+                            objectMapper.getIfAvailable(ObjectMapper::new).copyWith(new CBORFactory()), MediaType.APPLICATION_CBOR));
+                }
+            };
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass({ObjectMapper.class, SmileFactory.class})
+    @ConditionalOnProperty(name = "nishi.requests.common.binary.smile", havingValue = "true", matchIfMissing = true)
+    public static class SmileEnvelopeConfiguration {
+
+        @Bean
+        public WebMvcConfigurer smileEnvelopeConfigurer(ObjectProvider<ObjectMapper> objectMapper) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void extendMessageConverters(@NonNull List<HttpMessageConverter<?>> converters) {
+                    addBinaryConverter(converters, new BinaryEnvelopeHttpMessageConverter(
+                            objectMapper.getIfAvailable(ObjectMapper::new).copyWith(new SmileFactory()),
+                            BinaryEnvelopeHttpMessageConverter.APPLICATION_SMILE));
+                }
+            };
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(ObjectMapper.class)
+    @ConditionalOnProperty(name = "nishi.requests.common.etag.enabled", havingValue = "true")
+    public static class EntityTagConfiguration {
+
+        /**
+         * Hashes payloads with the application's {@link ObjectMapper}, so the tag follows what
+         * is actually written.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public EntityTagResolver entityTagResolver(ObjectProvider<ObjectMapper> objectMapper) {
+            return new EntityTagResolver(objectMapper.getIfAvailable(ObjectMapper::new));
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "nishi.requests.common.compression.enabled", havingValue = "true")
+    public static class CompressionConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(GzipCompressionCodec.class)
+        public GzipCompressionCodec gzipCompressionCodec(NishiRequestsCommonProperties properties) {
+            return new GzipCompressionCodec(properties.getCompression().getLevel());
+        }
+
+        /**
+         * Offers every {@link CompressionCodec} bean, in bean order, so applications can plug
+         * in other codings next to gzip.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public ResponseCompressionFilter responseCompressionFilter(ObjectProvider<CompressionCodec> codecs) {
+            return new ResponseCompressionFilter(codecs.orderedStream().toList());
+        }
+    }
+
+    /**
+     * Sets the credential of request envelopes from the application's {@link CredentialResolver},
+     * cached as configured by {@code nishi.requests.common.credentials.*} unless the resolver is a
+     * {@link CachingCredentialResolver} already. The interceptor and the advice share the cache.
+     */
+    @Configuration
+    @ConditionalOnBean(CredentialResolver.class)
+    public static class CredentialConfiguration {
+
+        private final CredentialResolver resolver;
+        private final NishiRequestsCommonProperties.Credentials credentials;
+
+        public CredentialConfiguration(CredentialResolver credentialResolver, NishiRequestsCommonProperties properties) {
+            this.credentials = properties.getCredentials();
+            CredentialResolver resolver = credentialResolver;
+            if (credentials.isCacheEnabled() && !(resolver instanceof CachingCredentialResolver)) {
+                resolver = new CachingCredentialResolver(resolver, credentials.getMaxEntries(), credentials.getTtl(),
+                        credentials.getRefreshAfter());
+            }
+            this.resolver = resolver;
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public CredentialRequestBodyAdvice credentialRequestBodyAdvice() {
+            return new CredentialRequestBodyAdvice(resolver, credentials.getHeader(), credentials.getTokenPrefix());
+        }
+
+        @Bean
+        public WebMvcConfigurer credentialResolvingConfigurer() {
+            CredentialResolvingInterceptor interceptor = new CredentialResolvingInterceptor(resolver, credentials.getHeader(),
+                    credentials.getTokenPrefix());
+            return new WebMvcConfigurer() {
+                @Override
+                public void addInterceptors(@NonNull InterceptorRegistry registry) {
+                    registry.addInterceptor(interceptor);
+                }
+            };
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "nishi.requests.common.metrics.enabled", havingValue = "true")
+    public static class EndpointMetricsConfiguration {
+
+        @Bean
+        public WebMvcConfigurer endpointMetricsConfigurer(EndpointMetrics endpointMetrics) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void addInterceptors(@NonNull InterceptorRegistry registry) {
+                    registry.addInterceptor(new EndpointMetricsInterceptor(endpointMetrics));
+                }
+            };
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "nishi.requests.common.metrics.enabled", havingValue = "true")
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    public static class MicrometerMetricsConfiguration {
+
+        /**
+         * Publishes to the application's {@link MeterRegistry}, or keeps the metrics in memory
+         * when there is none.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public EndpointMetrics endpointMetrics(ObjectProvider<MeterRegistry> meterRegistry, NishiRequestsCommonProperties properties) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return new InProcessEndpointMetrics();
+            }
+            return new MicrometerEndpointMetrics(registry, properties.getMetrics().isPercentileHistogram());
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "nishi.requests.common.metrics.enabled", havingValue = "true")
+    @ConditionalOnMissingClass("io.micrometer.core.instrument.MeterRegistry")
+    public static class InProcessMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public EndpointMetrics endpointMetrics() {
+            return new InProcessEndpointMetrics();
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "nishi.requests.common.pool.enabled", havingValue = "true")
+    public static class EnvelopePoolConfiguration {
+
+        /**
+         * Registry where applications create the pools of their envelope classes, e.g.
+         * {@code pools.responses(ProductResponse.class, ProductResponse::new)}.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public EnvelopePools envelopePools(NishiRequestsCommonProperties properties) {
+            NishiRequestsCommonProperties.Pool pool = properties.getPool();
+            return new EnvelopePools(pool.getStripes(), pool.getSlotsPerStripe(), pool.isLeakDetection());
+        }
+
+        @Bean
+        public WebMvcConfigurer envelopeRecyclingConfigurer(EnvelopePools envelopePools) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void addInterceptors(@NonNull InterceptorRegistry registry) {
+                    registry.addInterceptor(new EnvelopeRecyclingInterceptor(envelopePools));
+                }
+            };
+        }
+    }
+
+
+    /**
+     * Puts an envelope converter ahead of the generic converter of the same format, if Spring
+     * registered one, or last: JSON stays the default when the client accepts anything.
+     */
+    private static void addBinaryConverter(List<HttpMessageConverter<?>> converters, BinaryEnvelopeHttpMessageConverter converter) {
+        MediaType mediaType = converter.getSupportedMediaTypes().get(0);
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i).getSupportedMediaTypes().contains(mediaType)) {
+                converters.add(i, converter);
+                return;
+            }
+        }
+        converters.add(converter);
+    }
 }
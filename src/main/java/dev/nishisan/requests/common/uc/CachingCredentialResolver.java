@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.uc;
+
+import dev.nishisan.requests.common.cache.BoundedCache;
+import dev.nishisan.requests.common.coalescing.SingleFlight;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link CredentialResolver} caching the credentials of another one, keyed on what it is given:
+ * the token itself, or a user ID when the delegate is called with one (e.g. a resolver that reads
+ * the subject of a JWT and asks a caching resolver for the user behind it).
+ *
+ * Credentials are kept in a {@link BoundedCache} until the time to live ends, or until the
+ * delegate's {@link CredentialResolver#expiresAt} when that comes first: an expired credential
+ * is resolved again, and one already expired when resolved is not cached. Concurrent misses
+ * of the same key call the delegate once, through a {@link SingleFlight}. With a refresh delay
+ * shorter than the time to live, the first hit on an entry older than that delay reloads it in
+ * the background, while it keeps being served, so callers of a busy key never wait on the
+ * delegate. A refresh that fails leaves the entry as it is until it expires; a refresh that
+ * resolves nothing drops it. A load that overlaps an invalidation is not kept.
+ *
+ * Credentials are shared between the requests that hit them and must not be modified.
+ *
+ * @author Lucas Nishimura
+ */
+public class CachingCredentialResolver implements CredentialResolver {
+
+    private static final System.Logger LOGGER = System.getLogger(CachingCredentialResolver.class.getName());
+
+    private record Cached(IUserCredential<?> credential, long refreshAt, boolean expires, long expiresAt,
+                          AtomicBoolean refreshing) {
+
+        boolean isExpired(long now) {
+            return expires && now - expiresAt >= 0;
+        }
+    }
+
+    private final CredentialResolver delegate;
+    private final BoundedCache<String, Cached> entries;
+    private final SingleFlight<String, Cached> flights = new SingleFlight<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final Duration ttl;
+    private final long refreshAfterNanos;
+    private final Executor refresher;
+
+    /**
+     * Resolver without refresh-ahead: entries are reloaded once they expire.
+     *
+     * @param delegate   resolves the credentials on a miss
+     * @param maxEntries the number of credentials kept
+     * @param ttl        how long a credential is kept
+     */
+    public CachingCredentialResolver(CredentialResolver delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, ttl, null);
+    }
+
+    /**
+     * Resolver refreshing entries on virtual threads.
+     *
+     * @param delegate     resolves the credentials on a miss
+     * @param maxEntries   the number of credentials kept
+     * @param ttl          how long a credential is kept
+     * @param refreshAfter the age from which a hit reloads the credential in the background, null
+     *                     or not shorter than the time to live to disable refresh-ahead
+     */
+    public CachingCredentialResolver(CredentialResolver delegate, int maxEntries, Duration ttl, Duration refreshAfter) {
+        this(delegate, maxEntries, ttl, refreshAfter, Thread::startVirtualThread);
+    }
+
+    /**
+     * @param delegate     resolves the credentials on a miss
+     * @param maxEntries   the number of credentials kept
+     * @param ttl          how long a credential is kept
+     * @param refreshAfter the age from which a hit reloads the credential in the background, null
+     *                     or not shorter than the time to live to disable refresh-ahead
+     * @param refresher    runs the background reloads
+     */
+    public CachingCredentialResolver(CredentialResolver delegate, int maxEntries, Duration ttl, Duration refreshAfter,
+                                     Executor refresher) {
+        this.delegate = delegate;
+        this.entries = new BoundedCache<>(maxEntries, ttl);
+        this.ttl = ttl;
+        this.refreshAfterNanos = refreshAfter == null || refreshAfter.isNegative() || refreshAfter.compareTo(ttl) >= 0
+                ? -1 : refreshAfter.toNanos();
+        this.refresher = refresher;
+    }
+
+    /**
+     * Returns the cached credential for a token, resolving it on a miss.
+     *
+     * @param token the token, or user ID, the credential is cached on
+     * @return the credential, or null when the delegate resolves nothing; nothing is cached then
+     */
+    @Override
+    public IUserCredential<?> resolve(String token) {
+        if (token == null) {
+            return null;
+        }
+        Cached cached = current(token);
+        if (cached == null) {
+            return flights.execute(token, () -> loadMissing(token)).credential();
+        }
+        hits.increment();
+        if (refreshAfterNanos >= 0 && System.nanoTime() - cached.refreshAt() >= 0
+                && cached.refreshing().compareAndSet(false, true)) {
+            refresh(token, cached);
+        }
+        return cached.credential();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Instant expiresAt(IUserCredential<?> credential) {
+        return delegate.expiresAt(credential);
+    }
+
+    /**
+     * @param token the token, or user ID, whose credential is dropped, e.g. on logout
+     */
+    public void invalidate(String token) {
+        invalidations.incrementAndGet();
+        entries.remove(token);
+    }
+
+    /**
+     * Drops every credential.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return the number of cached credentials
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to resolve the credential
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of background reloads started
+     */
+    public long refreshes() {
+        return refreshes.sum();
+    }
+
+    private Cached current(String token) {
+        Cached cached = entries.get(token);
+        if (cached != null && cached.isExpired(System.nanoTime())) {
+            entries.remove(token, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    private Cached loadMissing(String token) {
+        Cached cached = current(token);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return load(token);
+    }
+
+    private Cached load(String token) {
+        long invalidation = invalidations.get();
+        IUserCredential<?> credential = delegate.resolve(token);
+        long now = System.nanoTime();
+        Instant expiresAt = credential == null ? null : delegate.expiresAt(credential);
+        Duration remaining = expiresAt == null ? null : Duration.between(Instant.now(), expiresAt);
+        boolean expires = remaining != null && remaining.compareTo(ttl) < 0;
+        long expiresAtNanos = !expires ? 0 : remaining.isNegative() ? now : now + remaining.toNanos();
+        Cached cached = new Cached(credential, now + refreshAfterNanos, expires, expiresAtNanos, new AtomicBoolean());
+        if (credential == null || cached.isExpired(now)) {
+            entries.remove(token);
+            return cached;
+        }
+        entries.put(token, cached);
+        if (invalidations.get() != invalidation) {
+            entries.remove(token, cached);
+        }
+        return cached;
+    }
+
+    private void refresh(String token, Cached cached) {
+        refreshes.increment();
+        try {
+            refresher.execute(() -> {
+                try {
+                    flights.execute(token, () -> load(token));
+                } catch (RuntimeException ex) {
+                    cached.refreshing().set(false);
+                    LOGGER.log(System.Logger.Level.WARNING, "Could not refresh a cached credential, keeping it until it expires", ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            cached.refreshing().set(false);
+            LOGGER.log(System.Logger.Level.DEBUG, "Credential refresh rejected", ex);
+        }
+    }
+}
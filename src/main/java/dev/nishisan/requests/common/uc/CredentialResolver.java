@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.uc;
+
+import java.time.Instant;
+
+/**
+ * Resolves the credential of a caller from a token, e.g. by parsing a JWT or asking a user
+ * service. Implementations are plugged into the Spring integration, which calls them before a
+ * handler taking a request envelope runs and sets the result on its {@code RequestContext}, where
+ * the envelope picks it up.
+ *
+ * Wrap slow resolvers in a {@link CachingCredentialResolver}.
+ *
+ * @author Lucas Nishimura
+ */
+@FunctionalInterface
+public interface CredentialResolver {
+
+    /**
+     * Resolves a credential.
+     *
+     * @param token the token, e.g. the bearer token of the {@code Authorization} header
+     * @return the credential, or null when the token does not identify anyone
+     */
+    public IUserCredential<?> resolve(String token);
+
+    /**
+     * Tells when a credential this resolver returned stops being valid, e.g. the {@code exp}
+     * claim of the JWT it came from; a {@link CachingCredentialResolver} does not keep it past
+     * that instant.
+     *
+     * @param credential a credential returned by {@link #resolve(String)}
+     * @return when the credential expires, or null when it does not expire by itself
+     */
+    public default Instant expiresAt(IUserCredential<?> credential) {
+        return null;
+    }
+
+}
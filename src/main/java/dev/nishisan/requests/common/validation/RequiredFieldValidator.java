@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.validation;
+
+import dev.nishisan.requests.common.annotations.RequiredField;
+import dev.nishisan.requests.common.exception.FieldValidationException;
+import dev.nishisan.requests.common.request.IRequest;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Enforces {@link RequiredField} constraints on request payloads.
+ *
+ * Each payload class is scanned once: its annotated fields (including inherited ones and record
+ * components) are turned into a cached plan of accessors and precomputed allowed values. Public
+ * getters are bound through {@link LambdaMetafactory}, with a lookup in the class declaring the
+ * getter so that the generated lambda lives in that class's loader (payloads may come from a
+ * child loader, e.g. Spring Boot devtools' restart loader); other fields are read through a
+ * private {@link MethodHandle}. Validating an instance is then a walk over the plan, with no reflection
+ * and no allocation unless a violation is found.
+ *
+ * A field violates its constraint when it is null or an empty {@link CharSequence}, or, when
+ * {@code allowedValues} are declared, when its value is not one of them. Values are compared by
+ * their string form ({@link Enum#name()} for enums); {@code AllowedValue.type} is informational.
+ *
+ * @author Lucas Nishimura
+ */
+public final class RequiredFieldValidator {
+
+    private static final ClassValue<Rule[]> PLANS = new ClassValue<>() {
+        @Override
+        protected Rule[] computeValue(Class<?> type) {
+            return plan(type);
+        }
+    };
+
+    private RequiredFieldValidator() {
+    }
+
+    /**
+     * Validates the payload of a request.
+     *
+     * @param request the request
+     * @throws FieldValidationException when the payload is missing or violates a constraint
+     */
+    public static void validate(IRequest<?> request) {
+        Object payload = request.getPayload();
+        if (payload == null) {
+            throw new FieldValidationException(request, Map.of("payload", "is required"));
+        }
+        Map<String, Object> violations = check(payload);
+        if (!violations.isEmpty()) {
+            throw new FieldValidationException(request, violations);
+        }
+    }
+
+    /**
+     * Validates a payload outside of a request.
+     *
+     * @param payload the payload, not null
+     * @throws FieldValidationException when the payload violates a constraint
+     */
+    public static void validate(Object payload) {
+        Map<String, Object> violations = check(payload);
+        if (!violations.isEmpty()) {
+            throw new FieldValidationException(null, violations);
+        }
+    }
+
+    /**
+     * Checks a payload without throwing.
+     *
+     * @param payload the payload, not null
+     * @return the violations keyed by field name, empty when the payload is valid
+     */
+    public static Map<String, Object> check(Object payload) {
+        Rule[] rules = PLANS.get(payload.getClass());
+        Map<String, Object> violations = null;
+        for (Rule rule : rules) {
+            String violation = rule.check(payload);
+            if (violation != null) {
+                if (violations == null) {
+                    violations = new LinkedHashMap<>();
+                }
+                violations.put(rule.name, violation);
+            }
+        }
+        return violations == null ? Map.of() : violations;
+    }
+
+    private static Rule[] plan(Class<?> type) {
+        List<Rule> rules = new ArrayList<>();
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        for (Class<?> current : hierarchy) {
+            for (Field field : current.getDeclaredFields()) {
+                RequiredField annotation = field.getAnnotation(RequiredField.class);
+                if (annotation != null && !Modifier.isStatic(field.getModifiers())) {
+                    rules.add(new Rule(field.getName(), accessor(type, field), allowedValues(annotation)));
+                }
+            }
+        }
+        return rules.toArray(new Rule[0]);
+    }
+
+    private static Set<String> allowedValues(RequiredField annotation) {
+        if (annotation.allowedValues().length == 0) {
+            return null;
+        }
+        return Arrays.stream(annotation.allowedValues())
+                .map(RequiredField.AllowedValue::value)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static Function<Object, Object> accessor(Class<?> type, Field field) {
+        Method getter = publicGetter(type, field);
+        if (getter != null) {
+            try {
+                return bind(getter);
+            } catch (Throwable ignored) {
+                // not reachable from this module, fall back to the field itself
+            }
+        }
+        MethodHandle handle = fieldHandle(field);
+        return target -> {
+            try {
+                return handle.invokeExact(target);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+    }
+
+    private static Method publicGetter(Class<?> type, Field field) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        String name = field.getName();
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        List<String> candidates = type.isRecord()
+                ? List.of(name)
+                : field.getType() == boolean.class ? List.of("is" + suffix, "get" + suffix) : List.of("get" + suffix);
+        for (String candidate : candidates) {
+            try {
+                Method method = type.getMethod(candidate);
+                if (method.getReturnType() == field.getType() && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    return method;
+                }
+            } catch (NoSuchMethodException ignored) {
+                // try the next candidate
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bind(Method getter) throws Throwable {
+        Class<?> owner = getter.getDeclaringClass();
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+        MethodHandle target = lookup.unreflect(getter);
+        Class<?> boxed = target.type().returnType().isPrimitive()
+                ? MethodType.methodType(target.type().returnType()).wrap().returnType()
+                : target.type().returnType();
+        return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        target,
+                        MethodType.methodType(boxed, owner))
+                .getTarget()
+                .invokeExact();
+    }
+
+    private static MethodHandle fieldHandle(Field field) {
+        try {
+            MethodHandles.Lookup lookup;
+            try {
+                lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            } catch (IllegalAccessException ex) {
+                field.setAccessible(true);
+                lookup = MethodHandles.lookup();
+            }
+            return lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot read @RequiredField " + field, ex);
+        }
+    }
+
+    /**
+     * One annotated field of a plan.
+     */
+    private static final class Rule {
+
+        private final String name;
+        private final Function<Object, Object> accessor;
+        private final Set<String> allowed;
+
+        Rule(String name, Function<Object, Object> accessor, Set<String> allowed) {
+            this.name = name;
+            this.accessor = accessor;
+            this.allowed = allowed;
+        }
+
+        String check(Object payload) {
+            Object value = accessor.apply(payload);
+            if (value == null || (value instanceof CharSequence text && text.isEmpty())) {
+                return "is required";
+            }
+            if (allowed != null) {
+                String text = value instanceof Enum<?> constant ? constant.name() : value.toString();
+                if (!allowed.contains(text)) {
+                    return "must be one of " + allowed;
+                }
+            }
+            return null;
+        }
+    }
+}
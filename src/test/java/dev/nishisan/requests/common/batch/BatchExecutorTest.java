@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.batch;
+
+import dev.nishisan.requests.common.context.RequestContext;
+import dev.nishisan.requests.common.exception.ApiErrorRenderer;
+import dev.nishisan.requests.common.exception.InvalidBatchRequestException;
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.request.BatchRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.BatchItem;
+import dev.nishisan.requests.common.response.BatchResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchExecutorTest {
+
+    static class ItemRequest extends AbsRequest<String> {
+
+        ItemRequest(String requestId, String payload) {
+            super(requestId, payload);
+        }
+    }
+
+    static class ItemResponse extends AbsResponse<String> {
+
+        ItemResponse(String payload) {
+            super(payload);
+        }
+    }
+
+    private final BatchExecutor executor = new BatchExecutor(4, 10, new ApiErrorRenderer());
+
+    private static BatchRequest<ItemRequest> batch(String... payloads) {
+        List<ItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < payloads.length; i++) {
+            items.add(new ItemRequest("item-" + i, payloads[i]));
+        }
+        return new BatchRequest<>("batch", items);
+    }
+
+    private static ItemResponse answer(ItemRequest request) {
+        return switch (request.getPayload()) {
+            case "bad" -> throw new InvalidBatchRequestException("bad item");
+            case "crash" -> throw new IllegalStateException("crash");
+            case "none" -> null;
+            default -> new ItemResponse(request.getPayload());
+        };
+    }
+
+    @Test
+    void answersMultiStatusWhenItemsDiffer() {
+        BatchResponse<ItemResponse> response = executor.execute(batch("a", "bad", "crash"), BatchExecutorTest::answer);
+
+        assertEquals(BatchResponse.MULTI_STATUS, response.getStatusCode());
+        List<BatchItem<ItemResponse>> items = response.getPayload();
+        assertEquals(200, items.get(0).getStatusCode());
+        assertEquals("a", items.get(0).getResponse().getPayload());
+        assertEquals("item-0", items.get(0).getResponse().getSourceRequestId());
+        assertEquals(400, items.get(1).getStatusCode());
+        assertEquals("bad item", items.get(1).getError().getMsg());
+        assertEquals(500, items.get(2).getStatusCode());
+        assertEquals("Internal Server Error", items.get(2).getError().getMsg());
+    }
+
+    @Test
+    void answersTheSharedStatusWhenEveryItemFailed() {
+        BatchResponse<ItemResponse> response = executor.execute(batch("bad", "bad"), BatchExecutorTest::answer);
+
+        assertEquals(400, response.getStatusCode());
+        for (BatchItem<ItemResponse> item : response.getPayload()) {
+            assertEquals(400, item.getStatusCode());
+            assertNull(item.getResponse());
+        }
+    }
+
+    @Test
+    void answersOkWhenEveryItemHasNoContent() {
+        BatchResponse<ItemResponse> response = executor.execute(batch("none", "none"), BatchExecutorTest::answer);
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(204, response.getPayload().get(0).getStatusCode());
+    }
+
+    @Test
+    void rejectsOversizedBatches() {
+        String[] payloads = new String[11];
+        Arrays.fill(payloads, "a");
+
+        InvalidBatchRequestException ex = assertThrows(InvalidBatchRequestException.class,
+                () -> executor.execute(batch(payloads), BatchExecutorTest::answer));
+        assertEquals(400, ex.getStatusCode());
+    }
+
+    @Test
+    void runsItemsWithTheTraceIdOfTheBatch() {
+        BatchRequest<ItemRequest> batch = batch("a", "b");
+        batch.setTraceId("batch-trace");
+        batch.getPayload().get(1).setTraceId("item-trace");
+
+        BatchResponse<ItemResponse> response = executor.execute(batch,
+                request -> new ItemResponse(RequestContext.currentTraceId()));
+
+        assertEquals("batch-trace", response.getPayload().get(0).getResponse().getPayload());
+        assertEquals("batch-trace", response.getPayload().get(1).getResponse().getPayload());
+    }
+
+    @Test
+    void reportsItemsNotStartedWhenInterrupted() throws Exception {
+        BatchExecutor serial = new BatchExecutor(1, 10, new ApiErrorRenderer());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<BatchResponse<ItemResponse>> result = new AtomicReference<>();
+        AtomicBoolean interruptRestored = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            result.set(serial.execute(batch("a", "b", "c"), request -> {
+                started.countDown();
+                Thread.sleep(10_000);
+                return new ItemResponse(request.getPayload());
+            }));
+            interruptRestored.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        started.await();
+        caller.interrupt();
+        caller.join(5_000);
+
+        assertTrue(interruptRestored.get());
+        List<BatchItem<ItemResponse>> items = result.get().getPayload();
+        assertEquals(500, items.get(0).getStatusCode());
+        assertEquals(503, items.get(1).getStatusCode());
+        assertEquals(503, items.get(2).getStatusCode());
+    }
+}
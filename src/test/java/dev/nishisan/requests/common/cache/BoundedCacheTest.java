@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedCacheTest {
+
+    @Test
+    void entriesExpireAfterTheTimeToLive() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, Duration.ofMillis(50));
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size(), "expired entries are dropped when read");
+    }
+
+    @Test
+    void evictionSparesRecentlyReadEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    void conditionalRemoveOnlyDropsTheGivenValue() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, Duration.ofMinutes(1));
+        String replaced = new String("1");
+        cache.put("a", replaced);
+        cache.put("a", "2");
+
+        cache.remove("a", replaced);
+        assertEquals("2", cache.get("a"));
+        cache.remove("a", cache.get("a"));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void removeIfAndClearDropMatchingEntries() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ofMinutes(1));
+        for (int i = 0; i < 6; i++) {
+            cache.put("k" + i, i);
+        }
+        cache.removeIf((key, value) -> value % 2 == 0);
+        assertEquals(3, cache.size());
+        assertNull(cache.get("k2"));
+        assertEquals(3, cache.get("k3"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejectsANonPositiveMaximum() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<>(0, Duration.ofMinutes(1)));
+    }
+}
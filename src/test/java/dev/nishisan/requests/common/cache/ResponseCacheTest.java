@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheTest {
+
+    static class ListRequest extends AbsRequest<String> {
+
+        ListRequest(String requestId) {
+            super(requestId, "page-1");
+        }
+    }
+
+    static class ListResponse extends AbsResponse<List<String>> {
+
+        ListResponse() {
+        }
+
+        ListResponse(List<String> payload) {
+            super(payload);
+        }
+    }
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ListResponse load() {
+        return new ListResponse(List.of("item-" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void hitsGetACopyOfTheCachedResponse() {
+        ResponseCache cache = new ResponseCache(10, Duration.ofMinutes(1), new ObjectMapper());
+
+        ListResponse first = cache.get("k", new ListRequest("r1"), ListResponse::new, this::load, "products");
+        ListResponse second = cache.get("k", new ListRequest("r2"), ListResponse::new, this::load, "products");
+
+        assertEquals(1, loads.get());
+        assertNotSame(first, second);
+        assertSame(first.getPayload(), second.getPayload());
+        assertEquals("r2", second.getSourceRequestId());
+        assertNotNull(second.serializedPayload(), "payloads are serialized once, when stored");
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void failedResponsesAreNotStored() {
+        ResponseCache cache = new ResponseCache(10, Duration.ofMinutes(1), null);
+        for (int i = 0; i < 2; i++) {
+            cache.get("k", null, ListResponse::new, () -> {
+                ListResponse response = load();
+                response.setStatusCode(503);
+                return response;
+            });
+        }
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidationByTagDropsTaggedResponses() {
+        ResponseCache cache = new ResponseCache(10, Duration.ofMinutes(1), null);
+        cache.get("products", null, ListResponse::new, this::load, "products");
+        cache.get("orders", null, ListResponse::new, this::load, "orders");
+
+        cache.invalidateTag("products");
+        assertEquals(1, cache.size());
+        cache.get("products", null, ListResponse::new, this::load, "products");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidationDuringALoadIsNotUndone() throws Exception {
+        ResponseCache cache = new ResponseCache(10, Duration.ofMinutes(1), null);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ListResponse> stale = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get("k", null, ListResponse::new, () -> {
+                    loading.countDown();
+                    finish.await();
+                    return load();
+                });
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }, runnable -> Thread.ofVirtual().start(runnable));
+        loading.await();
+        cache.invalidate("k");
+        finish.countDown();
+
+        assertEquals(List.of("item-1"), stale.get(5, TimeUnit.SECONDS).getPayload(), "the caller still gets its response");
+        assertEquals(0, cache.size());
+        assertEquals(List.of("item-2"), cache.get("k", null, ListResponse::new, this::load).getPayload());
+    }
+
+    @Test
+    void nullAndStreamingResponsesAreRejected() {
+        ResponseCache cache = new ResponseCache(10, Duration.ofMinutes(1), null);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> cache.get("k", null, ListResponse::new, () -> null));
+        assertEquals("The loader of k returned no response", ex.getMessage());
+        assertThrows(IllegalStateException.class, () -> cache.get("s", null,
+                () -> new StreamingResponse<>(Stream.<String>empty()), () -> new StreamingResponse<>(Stream.of("x"))));
+        assertEquals(0, cache.size());
+    }
+}
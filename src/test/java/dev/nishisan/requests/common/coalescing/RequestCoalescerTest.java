@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.coalescing;
+
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.StreamingResponse;
+import dev.nishisan.requests.common.uc.GenericUserCredential;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    static class ListRequest extends AbsRequest<String> {
+
+        ListRequest(String requestId, String payload, String userId) {
+            super(requestId, payload);
+            if (userId != null) {
+                setUserCredential(new GenericUserCredential(userId));
+            }
+        }
+    }
+
+    static class ListResponse extends AbsResponse<List<String>> {
+
+        ListResponse() {
+        }
+
+        ListResponse(List<String> payload) {
+            super(payload);
+        }
+    }
+
+    /**
+     * A call running on its own virtual thread; the outcome is its response or what it threw.
+     */
+    record Call(Thread thread, CompletableFuture<Object> outcome) {
+
+        static Call start(RequestCoalescer coalescer, ListRequest request, SingleFlight.Computation<ListResponse, ?> computation) {
+            CompletableFuture<Object> outcome = new CompletableFuture<>();
+            Thread thread = Thread.ofVirtual().start(() -> {
+                try {
+                    outcome.complete(coalescer.execute("list", request, ListResponse::new, computation));
+                } catch (Exception ex) {
+                    outcome.complete(ex);
+                }
+            });
+            return new Call(thread, outcome);
+        }
+
+        Object get() throws Exception {
+            return outcome.get(5, TimeUnit.SECONDS);
+        }
+
+        Call awaitParked() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (thread.getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, "call did not park");
+                Thread.sleep(1);
+            }
+            return this;
+        }
+    }
+
+    @Test
+    void identicalRequestsShareTheResultInResponsesOfTheirOwn() throws Exception {
+        RequestCoalescer coalescer = RequestCoalescer.perUser();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch finish = new CountDownLatch(1);
+        List<String> payload = List.of("a", "b");
+        SingleFlight.Computation<ListResponse, InterruptedException> computation = () -> {
+            calls.incrementAndGet();
+            finish.await();
+            ListResponse response = new ListResponse(payload);
+            response.setStatusCode(203);
+            return response;
+        };
+
+        Call first = Call.start(coalescer, new ListRequest("r1", "page-1", "u1"), computation).awaitParked();
+        Call second = Call.start(coalescer, new ListRequest("r2", "page-1", "u1"), computation).awaitParked();
+        finish.countDown();
+
+        ListResponse one = (ListResponse) first.get();
+        ListResponse two = (ListResponse) second.get();
+        assertEquals(1, calls.get());
+        assertNotSame(one, two);
+        assertSame(payload, one.getPayload());
+        assertSame(payload, two.getPayload());
+        assertEquals(203, two.getStatusCode());
+        assertEquals("r1", one.getSourceRequestId());
+        assertEquals("r2", two.getSourceRequestId());
+        assertEquals(0, coalescer.inFlight());
+    }
+
+    @Test
+    void requestsOfOtherUsersOrWithoutOneRunTheirOwnComputation() throws Exception {
+        RequestCoalescer coalescer = RequestCoalescer.perUser();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch finish = new CountDownLatch(1);
+        SingleFlight.Computation<ListResponse, InterruptedException> computation = () -> {
+            calls.incrementAndGet();
+            finish.await();
+            return new ListResponse(List.of());
+        };
+
+        List<Call> running = List.of(
+                Call.start(coalescer, new ListRequest("r1", "page-1", "u1"), computation).awaitParked(),
+                Call.start(coalescer, new ListRequest("r2", "page-1", "u2"), computation).awaitParked(),
+                Call.start(coalescer, new ListRequest("r3", "page-1", null), computation).awaitParked(),
+                Call.start(coalescer, new ListRequest("r4", "page-1", null), computation).awaitParked());
+        finish.countDown();
+        for (Call call : running) {
+            assertInstanceOf(ListResponse.class, call.get());
+        }
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void nullResultsFailForEveryCaller() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch finish = new CountDownLatch(1);
+        SingleFlight.Computation<ListResponse, InterruptedException> computation = () -> {
+            finish.await();
+            return null;
+        };
+
+        Call first = Call.start(coalescer, new ListRequest("r1", "page-1", null), computation).awaitParked();
+        Call second = Call.start(coalescer, new ListRequest("r2", "page-1", null), computation).awaitParked();
+        finish.countDown();
+
+        assertTrue(assertInstanceOf(IllegalStateException.class, first.get()).getMessage().contains("list"));
+        assertInstanceOf(IllegalStateException.class, second.get());
+    }
+
+    @Test
+    void streamingResponsesAreRejected() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("stream", new ListRequest("r1", "p", null),
+                () -> new StreamingResponse<>(Stream.<String>empty()), () -> new StreamingResponse<>(Stream.of("x"))));
+    }
+}
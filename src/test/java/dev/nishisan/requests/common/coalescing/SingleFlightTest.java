@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.coalescing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    /**
+     * A call running on its own virtual thread; the outcome is its result or what it threw.
+     */
+    record Call(Thread thread, CompletableFuture<Object> outcome) {
+
+        static <V> Call start(SingleFlight<String, V> flights, String key, SingleFlight.Computation<? extends V, ?> computation) {
+            CompletableFuture<Object> outcome = new CompletableFuture<>();
+            Thread thread = Thread.ofVirtual().start(() -> {
+                try {
+                    outcome.complete(flights.execute(key, computation));
+                } catch (Exception ex) {
+                    outcome.complete(ex);
+                }
+            });
+            return new Call(thread, outcome);
+        }
+
+        Object get() throws Exception {
+            return outcome.get(5, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Waits until the call is parked, i.e. waiting for the computation in flight.
+         */
+        Call awaitParked() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (thread.getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, "call did not park");
+                Thread.sleep(1);
+            }
+            return this;
+        }
+    }
+
+    @Test
+    void concurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, Object> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch finish = new CountDownLatch(1);
+        Object result = new Object();
+
+        Call first = Call.start(flights, "k", () -> {
+            calls.incrementAndGet();
+            finish.await();
+            return result;
+        }).awaitParked();
+        Call second = Call.start(flights, "k", () -> {
+            calls.incrementAndGet();
+            return new Object();
+        }).awaitParked();
+        assertEquals(1, flights.inFlight());
+
+        finish.countDown();
+        assertSame(result, first.get());
+        assertSame(result, second.get());
+        assertEquals(1, calls.get());
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    void failuresReachEveryWaitingCaller() throws Exception {
+        SingleFlight<String, Object> flights = new SingleFlight<>();
+        CountDownLatch finish = new CountDownLatch(1);
+
+        Call first = Call.start(flights, "k", () -> {
+            finish.await();
+            throw new IOException("backend down");
+        }).awaitParked();
+        Call second = Call.start(flights, "k", Object::new).awaitParked();
+        finish.countDown();
+
+        IOException thrown = assertInstanceOf(IOException.class, first.get());
+        assertSame(thrown, second.get());
+    }
+
+    @Test
+    void resultsAreNotKeptOnceTheComputationEnds() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, flights.execute("k", calls::incrementAndGet));
+        assertEquals(2, flights.execute("k", calls::incrementAndGet));
+        assertThrows(IllegalStateException.class, () -> flights.execute("k", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    void differentKeysDoNotWaitForEachOther() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch finish = new CountDownLatch(1);
+        Call blocked = Call.start(flights, "a", () -> {
+            finish.await();
+            return "a";
+        }).awaitParked();
+
+        assertEquals("b", flights.execute("b", () -> "b"));
+        finish.countDown();
+        assertEquals("a", blocked.get());
+    }
+}
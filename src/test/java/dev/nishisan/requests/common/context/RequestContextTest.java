@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.context;
+
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.uc.GenericUserCredential;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RequestContextTest {
+
+    static class TestRequest extends AbsRequest<String> {
+
+        TestRequest() {
+        }
+
+        TestRequest(String requestId, String payload) {
+            super(requestId, payload);
+        }
+    }
+
+    static class TestResponse extends AbsResponse<String> {
+    }
+
+    @Test
+    void requestsTakeTheTraceIdAndCredentialButNotTheRequestId() {
+        GenericUserCredential credential = new GenericUserCredential("u-1");
+        RequestContext.run(new RequestContext("trace-1", "inbound-1", credential), () -> {
+            TestRequest request = new TestRequest();
+            assertEquals("trace-1", request.getTraceId());
+            assertSame(credential, request.getUserCredential());
+            assertNull(request.getRequestId(), "the inbound request ID is not copied to new requests");
+            assertNull(new TestRequest(null, "p").getRequestId());
+            assertEquals("item-1", new TestRequest("item-1", "p").getRequestId());
+        });
+    }
+
+    @Test
+    void responsesTakeTheRequestIdAsTheirSource() {
+        RequestContext.run(new RequestContext("trace-1", "inbound-1"), () -> {
+            TestResponse response = new TestResponse();
+            assertEquals("trace-1", response.getTraceId());
+            assertEquals("inbound-1", response.getSourceRequestId());
+        });
+    }
+
+    @Test
+    void nothingIsBoundOutsideAScope() {
+        RequestContext.run(new RequestContext("trace-1", "inbound-1"), () -> assertEquals("trace-1", RequestContext.currentTraceId()));
+        assertNull(RequestContext.current());
+        assertNull(new TestRequest().getTraceId());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.jackson;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import dev.nishisan.requests.common.dto.ApiErrorDTO;
+import dev.nishisan.requests.common.dto.PageableDTO;
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.response.RawJson;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Checks that the {@link EnvelopeModule} writes the same JSON as the plain bean serializer.
+ */
+class EnvelopeSerializerTest {
+
+    static class ItemsResponse extends AbsResponse<List<String>> {
+
+        private String note;
+
+        ItemsResponse(List<String> payload) {
+            super(payload);
+        }
+
+        public String getNote() {
+            return note;
+        }
+
+        public void setNote(String note) {
+            this.note = note;
+        }
+    }
+
+    static class ItemsRequest extends AbsRequest<Map<String, Integer>> {
+
+        ItemsRequest(Map<String, Integer> payload) {
+            super("request-1", payload);
+        }
+    }
+
+    private static void assertSameJson(Supplier<ObjectMapper> mapper, Object value) throws Exception {
+        String expected = mapper.get().writeValueAsString(value);
+        String actual = mapper.get().registerModule(new EnvelopeModule()).writeValueAsString(value);
+        assertEquals(expected, actual);
+    }
+
+    private static void assertSameJsonForAll(Supplier<ObjectMapper> mapper) throws Exception {
+        ItemsResponse empty = new ItemsResponse(null);
+        ItemsResponse full = new ItemsResponse(List.of("a", "b"));
+        full.setTraceId("trace-1");
+        full.setStatusCode(201);
+        full.addResponseHeader("X-Version", "3");
+        full.setTotalPages(4);
+        full.setNextCursor("next");
+        full.setNote("note");
+        ItemsRequest request = new ItemsRequest(Map.of("a", 1));
+        request.addRequestHeader("X-Tenant", "t1");
+        PageableDTO pageable = new PageableDTO();
+        pageable.setSort("name");
+        ApiErrorDTO error = new ApiErrorDTO();
+        error.setMsg("failed");
+        error.setStatusCode(409);
+        error.setDetails(Map.of("field", "name"));
+
+        assertSameJson(mapper, empty);
+        assertSameJson(mapper, full);
+        assertSameJson(mapper, request);
+        assertSameJson(mapper, pageable);
+        assertSameJson(mapper, error);
+    }
+
+    @Test
+    void writesTheSameJsonByDefault() throws Exception {
+        assertSameJsonForAll(ObjectMapper::new);
+    }
+
+    @Test
+    void writesTheSameJsonWithoutNulls() throws Exception {
+        assertSameJsonForAll(() -> new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL));
+    }
+
+    @Test
+    void writesTheSameJsonWithANamingStrategy() throws Exception {
+        assertSameJsonForAll(() -> new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE));
+    }
+
+    @Test
+    void replacesTheBeanSerializerOfEnvelopes() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new EnvelopeModule());
+
+        assertInstanceOf(EnvelopeSerializer.class, mapper.getSerializerProviderInstance().findValueSerializer(ItemsResponse.class));
+        assertInstanceOf(EnvelopeSerializer.class, mapper.getSerializerProviderInstance().findValueSerializer(PageableDTO.class));
+    }
+
+    @Test
+    void writesAnAttachedPayloadFromItsBytes() throws Exception {
+        ItemsResponse response = new ItemsResponse(List.of("a", "b"));
+        response.attachSerializedPayload(RawJson.of("[\"attached\"]".getBytes(StandardCharsets.UTF_8)));
+
+        String json = new ObjectMapper().registerModule(new EnvelopeModule()).writeValueAsString(response);
+
+        assertEquals("[\"attached\"]", new ObjectMapper().readTree(json).get("payload").toString());
+    }
+}
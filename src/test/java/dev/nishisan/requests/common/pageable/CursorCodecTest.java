@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pageable;
+
+import dev.nishisan.requests.common.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorCodecTest {
+
+    private final CursorCodec codec = new CursorCodec("0123456789abcdef-secret".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void decodesWithinTheScopeItWasIssuedFor() {
+        String scope = CursorCodec.scope("products#list", Sort.by("name"));
+        String token = codec.encode(PageCursor.after(Map.of("name", "b", "id", 7L)), scope);
+
+        PageCursor cursor = codec.decode(token, scope);
+
+        assertTrue(cursor.forward());
+        assertEquals("b", cursor.keys().get("name"));
+        assertEquals(7L, cursor.keys().get("id"));
+    }
+
+    @Test
+    void rejectsAnotherSort() {
+        String token = codec.encode(PageCursor.after(Map.of("name", "b")),
+                CursorCodec.scope("products#list", Sort.by("name")));
+
+        assertThrows(InvalidCursorException.class,
+                () -> codec.decode(token, CursorCodec.scope("products#list", Sort.by(Sort.Direction.DESC, "name"))));
+    }
+
+    @Test
+    void rejectsAnotherEndpoint() {
+        String token = codec.encode(PageCursor.after(Map.of("name", "b")),
+                CursorCodec.scope("products#list", Sort.by("name")));
+
+        assertThrows(InvalidCursorException.class,
+                () -> codec.decode(token, CursorCodec.scope("orders#list", Sort.by("name"))));
+    }
+
+    @Test
+    void rejectsAnotherSecret() {
+        String scope = CursorCodec.scope("products#list", Sort.by("name"));
+        String token = codec.encode(PageCursor.after(Map.of("name", "b")), scope);
+
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.withRandomSecret().decode(token, scope));
+    }
+}
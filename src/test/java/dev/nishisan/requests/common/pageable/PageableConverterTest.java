@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pageable;
+
+import dev.nishisan.requests.common.dto.PageableDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class PageableConverterTest {
+
+    private final PageableConverter converter = new PageableConverter(Set.of("name"));
+
+    private static Page<String> page(Pageable pageable) {
+        return new PageImpl<>(List.of("a"), pageable, 42);
+    }
+
+    private static Slice<String> slice(Pageable pageable) {
+        return new SliceImpl<>(List.of("a"), pageable, true);
+    }
+
+    @Test
+    void fetchCountsTheTotalByDefault() {
+        Slice<String> result = converter.fetch(new PageableDTO(), PageableConverterTest::page, PageableConverterTest::slice);
+
+        assertEquals(42, assertInstanceOf(Page.class, result).getTotalElements());
+    }
+
+    @Test
+    void fetchSkipsTheCountWhenNotAsked() {
+        PageableDTO dto = new PageableDTO();
+        dto.setCountTotal(false);
+        dto.setSize(5);
+
+        Slice<String> result = converter.fetch(dto, PageableConverterTest::page, PageableConverterTest::slice);
+
+        assertFalse(result instanceof Page);
+        assertEquals(5, result.getSize());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pool;
+
+import dev.nishisan.requests.common.request.AbsRequest;
+import dev.nishisan.requests.common.response.AbsResponse;
+import dev.nishisan.requests.common.uc.GenericUserCredential;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnvelopePoolsTest {
+
+    static class ItemsResponse extends AbsResponse<List<String>> {
+    }
+
+    static class ItemsRequest extends AbsRequest<List<String>> {
+    }
+
+    @Test
+    void releasedResponsesAreResetAndReused() {
+        EnvelopePools pools = new EnvelopePools(1, 2, false);
+        StripedPool<ItemsResponse> pool = pools.responses(ItemsResponse.class, ItemsResponse::new);
+
+        ItemsResponse response = pool.acquire();
+        String firstId = response.getResponseId();
+        response.setPayload(List.of("a", "b"));
+        response.setStatusCode(201);
+        response.setTraceId("trace");
+        response.addResponseHeader("X-Test", "1");
+        assertTrue(pools.release(response));
+
+        ItemsResponse reused = pool.acquire();
+        assertSame(response, reused);
+        assertNull(reused.getPayload());
+        assertEquals(0, reused.getStatusCode());
+        assertEquals(0, reused.getSize());
+        assertNull(reused.getTraceId());
+        assertTrue(reused.getResponseHeaders().isEmpty());
+        assertNotNull(reused.getResponseId());
+        assertNotEquals(firstId, reused.getResponseId(), "a recycled response gets a new ID");
+    }
+
+    @Test
+    void releasedRequestsAreReset() {
+        EnvelopePools pools = new EnvelopePools(1, 2, false);
+        StripedPool<ItemsRequest> pool = pools.requests(ItemsRequest.class, ItemsRequest::new);
+
+        ItemsRequest request = pool.acquire();
+        request.setRequestId("r1");
+        request.setPayload(List.of("a"));
+        request.setUserCredential(new GenericUserCredential("u1"));
+        request.addRequestHeader("X-Test", "1");
+        pools.release(request);
+
+        ItemsRequest reused = pool.acquire();
+        assertSame(request, reused);
+        assertNull(reused.getRequestId());
+        assertNull(reused.getPayload());
+        assertNull(reused.getUserCredential());
+        assertTrue(reused.getRequestHeaders().isEmpty());
+    }
+
+    @Test
+    void unpooledClassesAreIgnored() {
+        EnvelopePools pools = new EnvelopePools();
+        ItemsResponse response = new ItemsResponse();
+        assertFalse(pools.isPooled(response));
+        assertFalse(pools.release(response));
+        assertFalse(pools.recycle(response));
+        assertFalse(pools.release(null));
+    }
+
+    @Test
+    void recycleOnlyTakesLeasedEnvelopesUnderLeakDetection() {
+        EnvelopePools pools = new EnvelopePools(1, 2, true);
+        StripedPool<ItemsResponse> pool = pools.responses(ItemsResponse.class, ItemsResponse::new);
+
+        ItemsResponse copy = new ItemsResponse();
+        assertTrue(pools.isPooled(copy));
+        assertFalse(pools.recycle(copy), "an envelope built outside the pool is left to the GC");
+        assertThrows(IllegalStateException.class, () -> pools.release(copy));
+
+        ItemsResponse leased = pool.acquire();
+        assertTrue(pools.recycle(leased));
+        assertFalse(pools.recycle(leased), "a second recycle is ignored");
+        assertEquals(0, pools.detectLeaks());
+    }
+
+    @Test
+    void recycleTakesAnyInstanceWithoutLeakDetection() {
+        EnvelopePools pools = new EnvelopePools(1, 2, false);
+        StripedPool<ItemsResponse> pool = pools.responses(ItemsResponse.class, ItemsResponse::new);
+        ItemsResponse created = new ItemsResponse();
+        assertTrue(pools.recycle(created));
+        assertSame(created, pool.acquire());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedPoolTest {
+
+    private static final class Box {
+        int value;
+    }
+
+    @Test
+    void acquireCreatesWhenEmptyAndReusesReleasedObjects() {
+        AtomicInteger created = new AtomicInteger();
+        StripedPool<Box> pool = new StripedPool<>(() -> {
+            created.incrementAndGet();
+            return new Box();
+        }, box -> box.value = 0, 1, 2, false);
+
+        Box first = pool.acquire();
+        first.value = 42;
+        pool.release(first);
+        Box second = pool.acquire();
+
+        assertSame(first, second);
+        assertEquals(0, second.value, "released objects are reset");
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void releaseDropsObjectsBeyondTheStripeCapacity() {
+        AtomicInteger created = new AtomicInteger();
+        StripedPool<Box> pool = new StripedPool<>(() -> {
+            created.incrementAndGet();
+            return new Box();
+        }, box -> { }, 1, 2, false);
+        List<Box> boxes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            boxes.add(pool.acquire());
+        }
+        boxes.forEach(pool::release);
+        for (int i = 0; i < 3; i++) {
+            pool.acquire();
+        }
+        assertEquals(4, created.get(), "only two of the three released objects are kept");
+    }
+
+    @Test
+    void leakDetectionRejectsForeignAndDoubleReleases() {
+        StripedPool<Box> pool = new StripedPool<>(Box::new, box -> { }, 1, 2, true);
+        Box box = pool.acquire();
+        assertTrue(pool.isLeased(box));
+        assertEquals(1, pool.outstanding());
+
+        pool.release(box);
+        assertFalse(pool.isLeased(box));
+        assertThrows(IllegalStateException.class, () -> pool.release(box));
+        assertThrows(IllegalStateException.class, () -> pool.release(new Box()));
+    }
+
+    @Test
+    void detectLeaksReportsWhatTheThreadStillHolds() {
+        StripedPool<Box> pool = new StripedPool<>(Box::new, box -> { }, 1, 2, true);
+        Box kept = pool.acquire();
+        Box released = pool.acquire();
+        pool.release(released);
+
+        assertEquals(1, pool.detectLeaks());
+        assertEquals(0, pool.outstanding());
+        assertNotSame(kept, released);
+        assertEquals(0, pool.detectLeaks());
+    }
+
+    @Test
+    void detectLeaksReportsWhatEndedThreadsStillHold() throws InterruptedException {
+        StripedPool<Box> pool = new StripedPool<>(Box::new, box -> { }, 1, 2, true);
+        Thread worker = Thread.ofVirtual().start(pool::acquire);
+        worker.join();
+
+        assertEquals(1, pool.outstanding());
+        assertEquals(1, pool.detectLeaks());
+        assertEquals(0, pool.outstanding());
+    }
+
+    @Test
+    void leakDetectionStopsTrackingPastTheLimit() {
+        StripedPool<Box> pool = new StripedPool<>(Box::new, box -> { }, 1, 2, true, 2);
+        Box first = pool.acquire();
+        pool.acquire();
+        Box untracked = pool.acquire();
+
+        assertEquals(2, pool.outstanding());
+        assertFalse(pool.isLeased(untracked));
+        pool.release(untracked);
+        pool.release(first);
+        assertEquals(1, pool.detectLeaks());
+        assertThrows(IllegalStateException.class, () -> pool.release(first));
+    }
+
+    @Test
+    void leakDetectionIsOffByDefault() {
+        StripedPool<Box> pool = new StripedPool<>(Box::new, box -> { });
+        Box box = pool.acquire();
+        assertFalse(pool.isLeased(box));
+        pool.release(new Box());
+        assertEquals(0, pool.detectLeaks());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.uc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CachingCredentialResolverTest {
+
+    /**
+     * Resolves a token to a credential whose user ID counts the calls, e.g. {@code "t#2"}, with
+     * an expiry computed from the token.
+     */
+    static final class CountingResolver implements CredentialResolver {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final Function<String, Instant> expiry;
+        volatile RuntimeException failure;
+
+        CountingResolver(Function<String, Instant> expiry) {
+            this.expiry = expiry;
+        }
+
+        @Override
+        public IUserCredential<?> resolve(String token) {
+            int call = calls.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            return token.startsWith("unknown") ? null : new GenericUserCredential(token + "#" + call);
+        }
+
+        @Override
+        public Instant expiresAt(IUserCredential<?> credential) {
+            return expiry.apply(credential.getUserId());
+        }
+    }
+
+    private static String userId(IUserCredential<?> credential) {
+        return credential == null ? null : credential.getUserId();
+    }
+
+    @Test
+    void cachesResolvedCredentialsButNotMisses() {
+        CountingResolver delegate = new CountingResolver(id -> null);
+        CachingCredentialResolver resolver = new CachingCredentialResolver(delegate, 10, Duration.ofMinutes(5));
+
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        assertNull(resolver.resolve("unknown"));
+        assertNull(resolver.resolve("unknown"));
+        assertEquals(3, delegate.calls.get());
+        assertEquals(1, resolver.size());
+        assertEquals(1, resolver.hits());
+    }
+
+    @Test
+    void expiredCredentialsAreNotCached() {
+        CountingResolver delegate = new CountingResolver(id -> Instant.now().minusSeconds(1));
+        CachingCredentialResolver resolver = new CachingCredentialResolver(delegate, 10, Duration.ofMinutes(5));
+
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        assertEquals("t#2", userId(resolver.resolve("t")));
+        assertEquals(0, resolver.size());
+    }
+
+    @Test
+    void entriesDoNotOutliveTheCredentialExpiry() throws InterruptedException {
+        CountingResolver delegate = new CountingResolver(id -> Instant.now().plusMillis(100));
+        CachingCredentialResolver resolver = new CachingCredentialResolver(delegate, 10, Duration.ofMinutes(5));
+
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        Thread.sleep(150);
+        assertEquals("t#2", userId(resolver.resolve("t")));
+    }
+
+    @Test
+    void refreshAheadReloadsWhileServingTheCachedCredential() {
+        CountingResolver delegate = new CountingResolver(id -> null);
+        CachingCredentialResolver resolver = new CachingCredentialResolver(delegate, 10, Duration.ofMinutes(5),
+                Duration.ZERO, Runnable::run);
+
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        assertEquals("t#1", userId(resolver.resolve("t")), "the hit that starts a refresh is served from the cache");
+        assertEquals("t#2", userId(resolver.resolve("t")));
+        assertEquals(2, resolver.refreshes());
+    }
+
+    @Test
+    void failedRefreshKeepsTheEntry() {
+        CountingResolver delegate = new CountingResolver(id -> null);
+        CachingCredentialResolver resolver = new CachingCredentialResolver(delegate, 10, Duration.ofMinutes(5),
+                Duration.ZERO, Runnable::run);
+        resolver.resolve("t");
+
+        delegate.failure = new IllegalStateException("user service down");
+        assertEquals("t#1", userId(resolver.resolve("t")));
+        assertEquals("t#1", userId(resolver.resolve("t")), "a failed refresh can be tried again");
+        assertEquals(3, delegate.calls.get());
+        assertEquals(1, resolver.size());
+
+        delegate.failure = null;
+        resolver.resolve("t");
+        assertEquals("t#4", userId(resolver.resolve("t")));
+    }
+
+    @Test
+    void invalidationDuringALoadIsNotUndone() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CredentialResolver slow = token -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                loading.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return new GenericUserCredential(token + "#" + call);
+        };
+        CachingCredentialResolver resolver = new CachingCredentialResolver(slow, 10, Duration.ofMinutes(5));
+        CompletableFuture<IUserCredential<?>> stale = CompletableFuture.supplyAsync(() -> resolver.resolve("t"),
+                runnable -> Thread.ofVirtual().start(runnable));
+        loading.await();
+        resolver.invalidate("t");
+        finish.countDown();
+
+        assertEquals("t#1", userId(stale.get(5, TimeUnit.SECONDS)));
+        assertEquals(0, resolver.size());
+        assertEquals("t#2", userId(resolver.resolve("t")));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2023 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.requests.common.validation;
+
+import dev.nishisan.requests.common.annotations.RequiredField;
+import dev.nishisan.requests.common.annotations.RequiredField.AllowedValue;
+import dev.nishisan.requests.common.exception.FieldValidationException;
+import dev.nishisan.requests.common.request.AbsRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequiredFieldValidatorTest {
+
+    public enum Status { ACTIVE, INACTIVE, DELETED }
+
+    public static class Base {
+
+        @RequiredField
+        private String tenant;
+
+        public String getTenant() {
+            return tenant;
+        }
+
+        public void setTenant(String tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    public static class Product extends Base {
+
+        @RequiredField
+        private String name;
+
+        @RequiredField(allowedValues = {
+                @AllowedValue(type = "Status", value = "ACTIVE"),
+                @AllowedValue(type = "Status", value = "INACTIVE")})
+        private Status status;
+
+        @RequiredField
+        private Integer stock;
+
+        private String notes;
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+    }
+
+    public record Price(@RequiredField String currency, @RequiredField(allowedValues = {
+            @AllowedValue(type = "int", value = "1"), @AllowedValue(type = "int", value = "100")}) int scale) {
+    }
+
+    /**
+     * Loaded again by a child class loader in {@link #bindsGettersOfClassesFromChildLoaders()}.
+     */
+    public static class Isolated {
+
+        @RequiredField
+        private String code;
+
+        public String getCode() {
+            return code;
+        }
+    }
+
+    static class ProductRequest extends AbsRequest<Product> {
+
+        ProductRequest(Product payload) {
+            super(payload);
+        }
+    }
+
+    private static Product product(String tenant, String name, Status status, Integer stock) {
+        Product product = new Product();
+        product.setTenant(tenant);
+        product.name = name;
+        product.status = status;
+        product.stock = stock;
+        return product;
+    }
+
+    @Test
+    void validPayloadHasNoViolations() {
+        assertEquals(Map.of(), RequiredFieldValidator.check(product("t", "n", Status.ACTIVE, 0)));
+        assertEquals(Map.of(), RequiredFieldValidator.check(new Price("EUR", 100)));
+    }
+
+    @Test
+    void reportsMissingEmptyAndDisallowedValuesInDeclarationOrder() {
+        Map<String, Object> violations = RequiredFieldValidator.check(product(null, "", Status.DELETED, null));
+
+        assertEquals(List.of("tenant", "name", "status", "stock"), List.copyOf(violations.keySet()),
+                "inherited fields come first, unannotated ones are skipped");
+        assertEquals("is required", violations.get("tenant"));
+        assertEquals("is required", violations.get("name"));
+        assertTrue(violations.get("status").toString().startsWith("must be one of"));
+        assertEquals("is required", violations.get("stock"), "fields without a getter are read directly");
+    }
+
+    @Test
+    void checksRecordComponentsAndPrimitives() {
+        Map<String, Object> violations = RequiredFieldValidator.check(new Price("", 2));
+
+        assertEquals(List.of("currency", "scale"), List.copyOf(violations.keySet()));
+    }
+
+    @Test
+    void validateThrowsWithTheViolationsAsDetails() {
+        ProductRequest request = new ProductRequest(product("t", null, Status.ACTIVE, 1));
+
+        FieldValidationException ex = assertThrows(FieldValidationException.class, () -> RequiredFieldValidator.validate(request));
+        assertEquals(400, ex.getStatusCode());
+        assertEquals("is required", ex.details().get("name"));
+        assertEquals(request, ex.getRequest());
+    }
+
+    @Test
+    void validateRejectsAMissingPayload() {
+        FieldValidationException ex = assertThrows(FieldValidationException.class,
+                () -> RequiredFieldValidator.validate(new ProductRequest(null)));
+        assertEquals("is required", ex.details().get("payload"));
+    }
+
+    @Test
+    void bindsGettersOfClassesFromChildLoaders() throws Exception {
+        Class<?> isolated = new ChildLoader(getClass().getClassLoader()).loadClass(Isolated.class.getName());
+        assertNotSame(Isolated.class, isolated);
+        Object payload = isolated.getConstructor().newInstance();
+
+        assertEquals(Map.of("code", "is required"), RequiredFieldValidator.check(payload));
+    }
+
+    /**
+     * Defines {@link Isolated} itself, like a devtools restart loader defines application classes,
+     * and delegates everything else to its parent.
+     */
+    private static final class ChildLoader extends ClassLoader {
+
+        ChildLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(Isolated.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null) {
+                    return loaded;
+                }
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    assertNotNull(in);
+                    byte[] bytes = in.readAllBytes();
+                    return defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException ex) {
+                    throw new ClassNotFoundException(name, ex);
+                }
+            }
+        }
+    }
+}